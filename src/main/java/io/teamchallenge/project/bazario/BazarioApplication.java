@@ -3,8 +3,10 @@ package io.teamchallenge.project.bazario;
 import io.teamchallenge.project.bazario.helpers.EnvHelper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BazarioApplication {
 
     public static void main(String[] args) {
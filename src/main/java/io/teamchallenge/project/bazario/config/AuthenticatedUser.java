@@ -0,0 +1,37 @@
+package io.teamchallenge.project.bazario.config;
+
+import io.teamchallenge.project.bazario.entity.Role;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.entity.UserRole;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The principal of a request authenticated with an access token, built from the claims of the token alone.
+ * Controllers that need the {@link User} entity turn it into a lazy reference with
+ * {@code UserService.getReference}, the row is only loaded when a service reads more than the id.
+ */
+public record AuthenticatedUser(Long id, String username, Set<UserRole> roles) implements AuthenticatedPrincipal {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRoles() == null
+                ? Set.of()
+                : user.getRoles().stream().map(Role::getRole).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(role.name()))
+                .toList();
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
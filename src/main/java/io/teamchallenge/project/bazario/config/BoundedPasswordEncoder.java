@@ -0,0 +1,154 @@
+package io.teamchallenge.project.bazario.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.teamchallenge.project.bazario.exceptions.AppException;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt on a bounded pool of {@code app.security.password.threads} workers, one per CPU by default, so a burst of
+ * logins cannot take every request thread and all the CPU from the other endpoints. When the workers and the queue
+ * of {@code app.security.password.queue_capacity} are busy the request is refused with {@link ServiceBusyException}
+ * right away.
+ * <p>
+ * Publishes {@code auth.password.queue} (time waited for a worker), {@code auth.password.hash} (time hashing),
+ * {@code auth.password.queue.size} and {@code auth.password.rejected}.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final int MAX_STRENGTH = 16;
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueTimer;
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+
+        final var poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final var threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final var thread = new Thread(runnable, "password-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.queueTimer = Timer.builder("auth.password.queue")
+                .description("time a password waited for a hashing worker")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("auth.password.hash")
+                .description("time spent hashing or checking a password")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("password checks refused because all workers were busy")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Measures BCrypt on this machine and returns the highest cost that hashes within {@code budget}, at least
+     * {@code minStrength}.
+     */
+    public static int calibrateStrength(int minStrength, Duration budget) {
+        var strength = minStrength;
+        for (int candidate = minStrength; candidate <= MAX_STRENGTH; candidate++) {
+            final var elapsed = medianHashTime(candidate);
+            if (elapsed.compareTo(budget) > 0) {
+                if (candidate == minStrength) {
+                    log.warn("BCrypt cost {} takes {} ms, more than the budget of {} ms",
+                            candidate, elapsed.toMillis(), budget.toMillis());
+                }
+                break;
+            }
+            strength = candidate;
+        }
+
+        log.info("BCrypt cost calibrated to {} for a budget of {} ms", strength, budget.toMillis());
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True for hashes made with a lower cost than the current one, they are hashed again after a successful login.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Supplier<T> task) {
+        final var submittedAt = System.nanoTime();
+        final CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                queueTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many password checks in progress");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AppException("Failed to hash password", e.getCause());
+        }
+    }
+
+    private static Duration medianHashTime(int strength) {
+        final var encoder = new BCryptPasswordEncoder(strength);
+        final var times = new long[CALIBRATION_ROUNDS];
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            final var start = System.nanoTime();
+            encoder.encode("calibration");
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return Duration.ofNanos(times[CALIBRATION_ROUNDS / 2]);
+    }
+}
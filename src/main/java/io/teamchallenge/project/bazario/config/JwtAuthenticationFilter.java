@@ -1,6 +1,7 @@
 package io.teamchallenge.project.bazario.config;
 
-import io.teamchallenge.project.bazario.service.UserService;
+import io.jsonwebtoken.Claims;
+import io.teamchallenge.project.bazario.service.UserPrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +9,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,11 +19,11 @@ import java.io.IOException;
 @Component
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
-    private final UserService userService;
+    private final UserPrincipalCache userPrincipalCache;
     private final JwtTokenProvider tokenProvider;
 
-    public JwtAuthenticationFilter(UserService userService, JwtTokenProvider tokenProvider) {
-        this.userService = userService;
+    public JwtAuthenticationFilter(UserPrincipalCache userPrincipalCache, JwtTokenProvider tokenProvider) {
+        this.userPrincipalCache = userPrincipalCache;
         this.tokenProvider = tokenProvider;
     }
 
@@ -30,12 +32,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         final var token = getTokenFromRequest(request);
-        if (token != null && tokenProvider.validateToken(token)) {
+        final var claims = token == null ? null : tokenProvider.verify(token).orElse(null);
+        final var principal = claims == null ? null : getPrincipal(claims);
+        if (principal != null) {
             log.debug("token: {}", token);
-            final var username = tokenProvider.getUsername(token);
-            final var user = userService.loadUserByUsername(username);
 
-            final var authenticationToken = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+            final var authenticationToken = new UsernamePasswordAuthenticationToken(principal, null,
+                    principal.getAuthorities());
 
             authenticationToken.setDetails(new WebAuthenticationDetailsSource()
                     .buildDetails(request));
@@ -46,6 +49,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Takes the principal from the token when it carries one, only its security stamp is checked against the cached
+     * one. Tokens with the email only are resolved through the cached user.
+     */
+    private AuthenticatedUser getPrincipal(Claims claims) {
+        final var principal = tokenProvider.getPrincipal(claims);
+        if (principal.isPresent()) {
+            return userPrincipalCache.isCurrent(principal.get().id(),
+                    claims.get(JwtTokenProvider.SECURITY_STAMP_CLAIM, String.class))
+                    ? principal.get()
+                    : null;
+        }
+
+        final var username = claims.getSubject();
+        return userPrincipalCache.get(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+
     private String getTokenFromRequest(HttpServletRequest request){
         final var bearerToken = request.getHeader("Authorization");
 
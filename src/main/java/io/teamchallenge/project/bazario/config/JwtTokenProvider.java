@@ -1,80 +1,153 @@
 package io.teamchallenge.project.bazario.config;
 
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.entity.UserRole;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies access tokens. The signing key and the parser are prepared once, and the claims of verified
+ * tokens are kept in a bounded cache keyed by the SHA-256 of the token until the token expires, so a client sending
+ * the same token again skips the signature check.
+ * <p>
+ * Tokens carry the user id, the roles and the security stamp of the user besides the email, so requests can be
+ * authenticated without loading the user. Tokens with the email only, issued before, are still accepted.
+ */
 @Component
 public class JwtTokenProvider {
 
-    private final String jwtSecret;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String SECURITY_STAMP_CLAIM = "stamp";
+
+    private final SecretKey key;
+    private final JwtParser parser;
     private final long jwtExpirationInSeconds;
+    private final BoundedCache<String, Claims> verifiedClaims;
 
     private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
 
 
     public JwtTokenProvider(@Value("${app.jwt_secret}") String jwtSecret,
-                            @Value("${app.jwt_duration_s}") long jwtExpirationInSeconds) {
-        this.jwtSecret = jwtSecret;
+                            @Value("${app.jwt_duration_s}") long jwtExpirationInSeconds,
+                            @Value("${app.jwt_cache.max_size}") int cacheMaxSize,
+                            MeterRegistry meterRegistry) {
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
         this.jwtExpirationInSeconds = jwtExpirationInSeconds;
+        this.verifiedClaims = new BoundedCache<>("jwt", cacheMaxSize,
+                Duration.ofSeconds(jwtExpirationInSeconds), meterRegistry);
     }
 
-    public String generateToken(String username) {
+    public String generateToken(User user) {
         final var now = Instant.now();
         Instant expiresAt = now.plusSeconds(jwtExpirationInSeconds);
 
         return Jwts.builder()
-                .subject(username)
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, user.getRoles() == null
+                        ? List.of()
+                        : user.getRoles().stream().map(role -> role.getRole().name()).sorted().toList())
+                .claim(SECURITY_STAMP_CLAIM, user.getSecurityStamp())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(expiresAt))
-                .signWith(key())
+                .signWith(key)
                 .compact();
     }
 
-    public String getUsername(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
-    }
+    /**
+     * Verifies the signature and the expiration of the token in one pass.
+     *
+     * @return the claims of the token, empty when it is not valid
+     */
+    public Optional<Claims> verify(String token) {
+        final var digest = digest(token);
+        final var cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
 
-    public boolean validateToken(String token) {
+        final Claims claims;
         try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build()
-                    .parse(token);
-
-            return true;
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
             log.warn("Expired JWT token");
-        } catch (MalformedJwtException e) {
+            return Optional.empty();
+        } catch (MalformedJwtException | UnsupportedJwtException e) {
             log.warn("Malformed JWT token");
+            return Optional.empty();
         } catch (SecurityException e) {
             log.warn("Security exception");
+            return Optional.empty();
         } catch (IllegalArgumentException e) {
             log.warn("Illegal JWT token");
+            return Optional.empty();
+        }
+
+        final var expiration = claims.getExpiration();
+        if (expiration != null) {
+            verifiedClaims.put(digest, claims, Duration.between(Instant.now(), expiration.toInstant()));
+        } else {
+            verifiedClaims.put(digest, claims);
         }
 
-        return false;
+        return Optional.of(claims);
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    /**
+     * Builds the principal from the claims of a token, empty for tokens that carry the email only.
+     */
+    public Optional<AuthenticatedUser> getPrincipal(Claims claims) {
+        final var userId = claims.get(USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            return Optional.empty();
+        }
+
+        final var roles = claims.get(ROLES_CLAIM, Collection.class);
+        return Optional.of(new AuthenticatedUser(userId, claims.getSubject(), roles == null
+                ? Set.of()
+                : ((Collection<?>) roles).stream()
+                        .map(role -> UserRole.valueOf(role.toString()))
+                        .collect(Collectors.toUnmodifiableSet())));
+    }
+
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
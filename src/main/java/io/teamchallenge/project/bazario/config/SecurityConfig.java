@@ -1,6 +1,8 @@
 package io.teamchallenge.project.bazario.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.teamchallenge.project.bazario.entity.UserRole;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -9,11 +11,12 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -27,9 +30,21 @@ public class SecurityConfig {
         this.unAuthorizedAccessHandler = unAuthorizedAccessHandler;
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    /**
+     * With {@code app.security.password.target_ms} above zero the BCrypt cost is calibrated at startup to the
+     * highest one that hashes within that time, never below {@code app.security.password.strength}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.strength}") int strength,
+                                           @Value("${app.security.password.target_ms}") long targetMillis,
+                                           @Value("${app.security.password.threads}") int threads,
+                                           @Value("${app.security.password.queue_capacity}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        final var cost = targetMillis > 0
+                ? BoundedPasswordEncoder.calibrateStrength(strength, Duration.ofMillis(targetMillis))
+                : strength;
+
+        return new BoundedPasswordEncoder(cost, threads, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -37,11 +52,14 @@ public class SecurityConfig {
         //noinspection Convert2MethodRef
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/auth/logout").authenticated()
+                        .requestMatchers("/auth/logout", "/auth/logout-all").authenticated()
                         .requestMatchers("/auth/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/adv/export").authenticated()
                         .requestMatchers(HttpMethod.GET, "/adv/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/comment/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/pictures/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/user/admin").hasAuthority(UserRole.ADMIN.name())
+                        .requestMatchers("/actuator/**").hasAuthority(UserRole.ADMIN.name())
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .exceptionHandling(ex -> ex.authenticationEntryPoint(this.unAuthorizedAccessHandler))
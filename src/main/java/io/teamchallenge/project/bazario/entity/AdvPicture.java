@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Objects;
 
@@ -13,7 +14,10 @@ import java.util.Objects;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "ADV_PICS")
+@Table(name = "ADV_PICS", indexes = {
+        @Index(name = "IDX_ADV_PICS_CONTENT_HASH", columnList = "content_hash"),
+        @Index(name = "IDX_ADV_PICS_EXTERNAL_TOKEN", columnList = "external_token"),
+        @Index(name = "IDX_ADV_PICS_THUMBNAIL_TOKEN", columnList = "thumbnail_token")})
 public class AdvPicture {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ADV_PIC_SEQ")
@@ -24,6 +28,21 @@ public class AdvPicture {
 
     private String externalToken;
 
+    private String thumbnailUrl;
+
+    private String thumbnailToken;
+
+    /**
+     * SHA-256 of the uploaded bytes in hex, pictures with the same hash share their assets.
+     */
+    @Column(length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    @ColumnDefault("'READY'")
+    private PictureStatus status;
+
     @ManyToOne
     @JoinColumn(name = "ADV_ID")
     private Advertisement advertisement;
@@ -47,6 +66,9 @@ public class AdvPicture {
                "id=" + id +
                ", url='" + url + '\'' +
                ", externalToken='" + externalToken + '\'' +
+               ", thumbnailUrl='" + thumbnailUrl + '\'' +
+               ", contentHash='" + contentHash + '\'' +
+               ", status=" + status +
                '}';
     }
 }
@@ -0,0 +1,4 @@
+package io.teamchallenge.project.bazario.entity;
+
+public record AdvPictureRow(Long advertisementId, Long id, String url, String thumbnailUrl, PictureStatus status) {
+}
@@ -15,7 +15,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "ADV")
+@Table(name = "ADV", indexes = {
+        @Index(name = "IDX_ADV_STATUS_PRICE_ID", columnList = "status, price, id"),
+        @Index(name = "IDX_ADV_STATUS_CREATE_DATE_ID", columnList = "status, create_date, id")})
 public class Advertisement {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ADV_SEQ")
@@ -39,6 +41,19 @@ public class Advertisement {
 
     private LocalDateTime createDate;
 
+    /**
+     * Incremented on every change of the advertisement or its pictures, used as the ETag. Bumped with its own UPDATE
+     * by {@code AdvertisementRepository.incrementVersion}, so concurrent changes never lose an increment.
+     */
+    @Column(updatable = false)
+    private long version;
+
+    /**
+     * Maintained by {@code AdvertisementViewCounter} with its own UPDATE, never written from the entity.
+     */
+    @Column(updatable = false)
+    private long views;
+
     @ManyToOne
     @JoinColumn(name = "USER_ID")
     private User user;
@@ -54,6 +69,8 @@ public class Advertisement {
                ", price=" + price +
                ", status=" + status +
                ", createDate=" + createDate +
+               ", version=" + version +
+               ", views=" + views +
                ", user=" + user.getId() +
                '}';
     }
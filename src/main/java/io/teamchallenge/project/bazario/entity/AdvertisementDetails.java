@@ -0,0 +1,31 @@
+package io.teamchallenge.project.bazario.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable view of one advertisement with its pictures, safe to share between requests. Views change on every
+ * request and are kept by {@code AdvertisementViewCounter} instead.
+ */
+public record AdvertisementDetails(Long id,
+                                   String title,
+                                   String description,
+                                   Category category,
+                                   BigDecimal price,
+                                   boolean status,
+                                   LocalDateTime createDate,
+                                   Long userId,
+                                   long version,
+                                   List<AdvPictureRow> pictures) {
+
+    public AdvertisementDetails(Long id, String title, String description, Category category, BigDecimal price,
+                                boolean status, LocalDateTime createDate, Long userId, long version) {
+        this(id, title, description, category, price, status, createDate, userId, version, List.of());
+    }
+
+    public AdvertisementDetails withPictures(List<AdvPictureRow> pictures) {
+        return new AdvertisementDetails(id, title, description, category, price, status, createDate, userId, version,
+                List.copyOf(pictures));
+    }
+}
@@ -0,0 +1,16 @@
+package io.teamchallenge.project.bazario.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat row of the advertisement listing, selected without the picture and user associations.
+ */
+public record AdvertisementListItem(Long id,
+                                    String title,
+                                    String description,
+                                    Category category,
+                                    BigDecimal price,
+                                    boolean status,
+                                    LocalDateTime createDate) {
+}
@@ -0,0 +1,19 @@
+package io.teamchallenge.project.bazario.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record AdvertisementSnapshot(Long id,
+                                    String title,
+                                    String description,
+                                    Category category,
+                                    BigDecimal price,
+                                    boolean status,
+                                    LocalDateTime createDate,
+                                    Long userId) {
+
+    public AdvertisementSnapshot(Advertisement vo) {
+        this(vo.getId(), vo.getTitle(), vo.getDescription(), vo.getCategory(), vo.getPrice(), vo.isStatus(),
+                vo.getCreateDate(), vo.getUser() == null ? null : vo.getUser().getId());
+    }
+}
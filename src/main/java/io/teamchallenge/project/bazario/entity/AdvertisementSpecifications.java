@@ -2,6 +2,8 @@ package io.teamchallenge.project.bazario.entity;
 
 import org.springframework.data.jpa.domain.Specification;
 
+import java.math.BigDecimal;
+
 public interface AdvertisementSpecifications {
     static Specification<Advertisement> hasStatus(boolean status) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("status"), status);
@@ -11,8 +13,54 @@ public interface AdvertisementSpecifications {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("category"), category.name());
     }
 
+    static Specification<Advertisement> hasPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        return (root, query, criteriaBuilder) -> {
+            final var price = root.<BigDecimal>get("price");
+
+            if (minPrice == null) {
+                return criteriaBuilder.lessThanOrEqualTo(price, maxPrice);
+            }
+
+            return maxPrice == null
+                    ? criteriaBuilder.greaterThanOrEqualTo(price, minPrice)
+                    : criteriaBuilder.between(price, minPrice, maxPrice);
+        };
+    }
+
     static Specification<Advertisement> containsTitle(String title) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.like(
                 criteriaBuilder.lower(root.get("title")), "%" + title.toLowerCase() + "%");
     }
+
+    /**
+     * Seek predicate for keyset pagination: rows strictly after ({@code value}, {@code id}) in the listing order.
+     */
+    static <T extends Comparable<? super T>> Specification<Advertisement> seekAfter(String property, T value,
+                                                                                   long id, boolean descending) {
+        return (root, query, criteriaBuilder) -> {
+            final var idPath = root.<Long>get("id");
+
+            if ("id".equals(property)) {
+                return descending
+                        ? criteriaBuilder.lessThan(idPath, id)
+                        : criteriaBuilder.greaterThan(idPath, id);
+            }
+
+            final var keyPath = root.<T>get(property);
+
+            // key <= value AND (key < value OR id < cursor id): the redundant bound on the key alone is what lets
+            // the (status, key, id) index seek to the cursor, an OR by itself is not used as an index range
+            return descending
+                    ? criteriaBuilder.and(
+                            criteriaBuilder.lessThanOrEqualTo(keyPath, value),
+                            criteriaBuilder.or(
+                                    criteriaBuilder.lessThan(keyPath, value),
+                                    criteriaBuilder.lessThan(idPath, id)))
+                    : criteriaBuilder.and(
+                            criteriaBuilder.greaterThanOrEqualTo(keyPath, value),
+                            criteriaBuilder.or(
+                                    criteriaBuilder.greaterThan(keyPath, value),
+                                    criteriaBuilder.greaterThan(idPath, id)));
+        };
+    }
 }
@@ -0,0 +1,55 @@
+package io.teamchallenge.project.bazario.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A picture asset to remove from the storage once the transaction that dropped its last reference has committed.
+ * Rows that still fail after all attempts stay as dead letters with their last error.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "PENDING_DELETIONS", indexes = {
+        @Index(name = "IDX_PENDING_DELETIONS_DEAD_NEXT_ATTEMPT_AT", columnList = "dead, next_attempt_at"),
+        @Index(name = "IDX_PENDING_DELETIONS_PUBLIC_ID", columnList = "public_id")})
+public class PendingDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "PENDING_DELETION_SEQ")
+    @SequenceGenerator(name = "PENDING_DELETION_SEQ", sequenceName = "PENDING_DELETION_SEQ", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String publicId;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private boolean dead;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public PendingDeletion(String publicId, LocalDateTime nextAttemptAt) {
+        this.publicId = publicId;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingDeletion{" +
+               "id=" + id +
+               ", publicId='" + publicId + '\'' +
+               ", attempts=" + attempts +
+               ", nextAttemptAt=" + nextAttemptAt +
+               ", dead=" + dead +
+               '}';
+    }
+}
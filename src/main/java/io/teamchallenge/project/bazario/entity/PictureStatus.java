@@ -0,0 +1,16 @@
+package io.teamchallenge.project.bazario.entity;
+
+public enum PictureStatus {
+    /**
+     * Uploaded, {@code url} and {@code externalToken} are set.
+     */
+    READY,
+    /**
+     * Staged locally and waiting for the background upload.
+     */
+    PENDING,
+    /**
+     * The background upload failed, the picture has no url.
+     */
+    FAILED
+}
@@ -0,0 +1,74 @@
+package io.teamchallenge.project.bazario.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One refresh token of one session, a user gets a row per device it logged in on. Only the SHA-256 of the token is
+ * stored, the token itself is handed to the client once.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "REFRESH_TOKENS", indexes = {
+        @Index(name = "IDX_REFRESH_TOKENS_USER_ID", columnList = "user_id"),
+        @Index(name = "IDX_REFRESH_TOKENS_EXPIRES", columnList = "expires")})
+public class RefreshToken implements Persistable<String> {
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(nullable = false, columnDefinition = "timestamp")
+    private LocalDateTime expires;
+
+    @Column(nullable = false, columnDefinition = "timestamp")
+    private LocalDateTime created;
+
+    // the id is assigned, saving a new token must insert it without looking it up first
+    @Transient
+    private boolean isNew = true;
+
+    public RefreshToken(String tokenHash, User user, LocalDateTime expires, LocalDateTime created) {
+        this.tokenHash = tokenHash;
+        this.user = user;
+        this.expires = expires;
+        this.created = created;
+    }
+
+    @Override
+    public String getId() {
+        return tokenHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshToken{" +
+               "expires=" + expires +
+               ", created=" + created +
+               '}';
+    }
+}
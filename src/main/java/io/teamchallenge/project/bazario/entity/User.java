@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
@@ -19,6 +22,8 @@ import java.util.Set;
 @Table(name = "USERS")
 
 public class User implements UserDetails {
+    private static final SecureRandom SECURITY_STAMP_RANDOM = new SecureRandom();
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "USER_SEQ")
     @SequenceGenerator(name = "USER_SEQ", sequenceName = "USER_SEQ", allocationSize = 1)
@@ -58,13 +63,11 @@ public class User implements UserDetails {
     })
     private Verification passwordVerification;
 
-    @Embedded
-    @AttributeOverrides({
-            @AttributeOverride(name = "token", column = @Column(name = "REFRESH_TOKEN")),
-            @AttributeOverride(name = "expires", column = @Column(name = "REFRESH_TOKEN_EXPIRES",
-                    columnDefinition = "timestamp"))
-    })
-    private Verification refreshToken;
+    /**
+     * Copied into every access token, changing it revokes the access tokens issued before.
+     */
+    @Column(name = "security_stamp", nullable = false, length = 32)
+    private String securityStamp;
 
     @OneToMany(mappedBy = "user", fetch = FetchType.EAGER,
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE}, orphanRemoval = true)
@@ -83,6 +86,19 @@ public class User implements UserDetails {
         this.passwordVerification = passwordVerification;
     }
 
+    public void rotateSecurityStamp() {
+        final var bytes = new byte[16];
+        SECURITY_STAMP_RANDOM.nextBytes(bytes);
+        securityStamp = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @PrePersist
+    void initSecurityStamp() {
+        if (securityStamp == null) {
+            rotateSecurityStamp();
+        }
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles == null
@@ -108,14 +124,15 @@ public class User implements UserDetails {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        // either side may be a lazy reference to the same row
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
         User user = (User) o;
-        return Objects.equals(id, user.id);
+        return Objects.equals(getId(), user.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(id);
+        return Objects.hashCode(getId());
     }
 
     @Override
@@ -0,0 +1,7 @@
+package io.teamchallenge.project.bazario.exceptions;
+
+public class InvalidCursorException extends AppException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Invalid pagination cursor: %s", cursor));
+    }
+}
@@ -0,0 +1,8 @@
+package io.teamchallenge.project.bazario.exceptions;
+
+public class ServiceBusyException extends AppException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,130 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Small in-process LRU cache with a time-to-live, publishing {@code cache.gets} (hit/miss) and {@code cache.size}
+ * metrics tagged with the cache name.
+ * <p>
+ * {@link #get(Object, Function)} only stores a loaded value if no invalidation happened while it was loading, so a
+ * load racing with a write can never put stale data back after the write has invalidated it.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public BoundedCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, BoundedCache::size).tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public V getIfPresent(K key) {
+        final V value;
+        synchronized (this) {
+            final var entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                value = null;
+            } else {
+                value = entry == null ? null : entry.value();
+            }
+        }
+
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    /**
+     * Read-through lookup. Null values returned by the loader are not cached.
+     */
+    public V get(K key, Function<K, V> loader) {
+        final var cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final var loadedAtGeneration = generation.get();
+        final var value = loader.apply(key);
+
+        if (value != null) {
+            synchronized (this) {
+                if (generation.get() == loadedAtGeneration) {
+                    entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+
+        return value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, Duration.ofNanos(ttlNanos));
+    }
+
+    /**
+     * Stores a value that expires earlier than the cache default, e.g. together with the token it was derived from.
+     */
+    public synchronized void put(K key, V value, Duration timeToLive) {
+        final var expiresIn = Math.min(ttlNanos, timeToLive.toNanos());
+        if (expiresIn > 0) {
+            entries.put(key, new Entry<>(value, System.nanoTime() + expiresIn));
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(predicate);
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Makes loads that are in flight right now skip storing their result, without dropping any entry.
+     */
+    public void fence() {
+        generation.incrementAndGet();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
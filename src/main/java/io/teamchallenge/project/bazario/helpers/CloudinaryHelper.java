@@ -5,16 +5,24 @@ import com.cloudinary.utils.ObjectUtils;
 import io.teamchallenge.project.bazario.exceptions.AppException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
 @Component
-public class CloudinaryHelper {
+@ConditionalOnProperty(name = "app.pictures.storage", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryHelper implements PictureStorage {
+
+    private static final int DELETE_BATCH_SIZE = 100;
 
     private final Cloudinary cloudinary;
 
@@ -24,7 +32,8 @@ public class CloudinaryHelper {
         this.cloudinary.config.secure = true;
     }
 
-    public UploadResult uploadFile(MultipartFile file) {
+    @Override
+    public StoredPicture store(byte[] content, String format) {
         final var options = ObjectUtils.asMap(
                 "filename", UUID.randomUUID().toString(),
                 "use_filename", true,
@@ -33,20 +42,21 @@ public class CloudinaryHelper {
         );
 
         try {
-            final var uploadResponse = this.cloudinary.uploader().upload(file.getBytes(), options);
+            final var uploadResponse = this.cloudinary.uploader().upload(content, options);
 
             log.debug("uploadResponse: {}", uploadResponse);
 
             final var url = (String) uploadResponse.get("url");
             final var publicId = (String) uploadResponse.get("public_id");
 
-            return new UploadResult(url, publicId);
+            return new StoredPicture(url, publicId);
         } catch (Exception e) {
             throw new AppException("Failed to upload file", e);
         }
     }
 
-    public void deleteFile(String publicId) {
+    @Override
+    public void delete(String publicId) {
         try {
             cloudinary.uploader().destroy(publicId, Collections.emptyMap());
         } catch (IOException e) {
@@ -54,7 +64,32 @@ public class CloudinaryHelper {
         }
     }
 
-    public record UploadResult(String url, String publicId) {
+    /**
+     * Uses the Admin API, which deletes up to {@value #DELETE_BATCH_SIZE} assets per call.
+     */
+    @Override
+    public Set<String> deleteAll(Collection<String> publicIds) {
+        final var failed = new HashSet<String>();
+        final var ids = List.copyOf(publicIds);
+
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            final var batch = ids.subList(from, Math.min(ids.size(), from + DELETE_BATCH_SIZE));
+            try {
+                final var response = cloudinary.api().deleteResources(batch, Collections.emptyMap());
+                final var deleted = (Map<?, ?>) response.get("deleted");
+
+                for (String publicId : batch) {
+                    final var result = deleted == null ? null : deleted.get(publicId);
+                    if (!"deleted".equals(result) && !"not_found".equals(result)) {
+                        failed.add(publicId);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("failed to delete {} files", batch.size(), e);
+                failed.addAll(batch);
+            }
+        }
 
+        return failed;
     }
 }
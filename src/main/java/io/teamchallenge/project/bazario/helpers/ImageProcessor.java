@@ -0,0 +1,470 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import io.teamchallenge.project.bazario.exceptions.AppException;
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepares pictures for the image host: decodes them, scales them down to {@code app.pictures.image.max_edge}
+ * pixels on the longest edge, renders a thumbnail of {@code app.pictures.image.thumbnail_edge} pixels and
+ * re-encodes both. Opaque pictures become JPEGs of {@code app.pictures.image.quality}, pictures with transparency
+ * become PNGs. Only the pixels are written, EXIF, GPS and other metadata of the original are dropped, so the EXIF
+ * orientation of a JPEG is applied to the pixels before they are scaled. A picture that needs neither scaling nor
+ * rotating keeps its original encoding with the metadata segments cut out when that is smaller than re-encoding it.
+ * <p>
+ * Pictures are read from their staged file. The segments of the original are scanned on the file, its encoding is
+ * only copied into memory when the result is smaller than the re-encoded picture.
+ * <p>
+ * Decoding is the memory-hungry part, so it runs on {@code app.pictures.image.threads} workers. Large sources
+ * are subsampled while they are read, a 4000px photo is never fully decoded for a 1600px result.
+ */
+@Component
+public class ImageProcessor {
+
+    private static final Set<String> PNG_METADATA_CHUNKS = Set.of("tEXt", "zTXt", "iTXt", "eXIf", "tIME");
+
+    private final int maxEdge;
+    private final int thumbnailEdge;
+    private final float quality;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    public ImageProcessor(@Value("${app.pictures.image.max_edge}") int maxEdge,
+                          @Value("${app.pictures.image.thumbnail_edge}") int thumbnailEdge,
+                          @Value("${app.pictures.image.quality}") float quality,
+                          @Value("${app.pictures.image.max_pixels}") long maxPixels,
+                          @Value("${app.pictures.image.threads}") int threads) {
+        this.maxEdge = maxEdge;
+        this.thumbnailEdge = thumbnailEdge;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+
+        final var poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final var threadNumber = new AtomicInteger();
+        // when all workers and the queue are busy the request thread processes the picture by itself
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(poolSize * 2),
+                runnable -> {
+                    final var thread = new Thread(runnable, "image-processor-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @throws IllegalOperationException when the bytes are not a readable picture or it has too many pixels
+     */
+    public ProcessedImage process(StagedPicture original) {
+        try {
+            return CompletableFuture.supplyAsync(() -> processNow(original), executor).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException("Picture processing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AppException appException) {
+                throw appException;
+            }
+            throw new AppException("Failed to process picture", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    ProcessedImage processNow(StagedPicture original) {
+        try {
+            final var decoded = decode(original.file());
+            final var oriented = "jpeg".equals(decoded.format())
+                    ? orient(decoded.image(), orientation(original.file()))
+                    : decoded.image();
+            final var image = scale(oriented, maxEdge);
+            final var thumbnail = scale(image, thumbnailEdge);
+
+            final var format = decoded.image().getColorModel().hasAlpha() ? "png" : "jpeg";
+            var imageBytes = encode(image, format);
+            if (image == decoded.image() && format.equals(decoded.format())) {
+                final var stripped = stripMetadata(original.file(), format, imageBytes.length);
+                if (stripped != null) {
+                    imageBytes = stripped;
+                }
+            }
+
+            final var thumbnailBytes = thumbnail == image ? imageBytes : encode(thumbnail, format);
+            return new ProcessedImage(imageBytes, thumbnailBytes, format, image.getWidth(), image.getHeight());
+        } catch (IOException e) {
+            throw new AppException("Failed to process picture", e);
+        }
+    }
+
+    private Decoded decode(Path file) throws IOException {
+        // a file-backed stream, the reader seeks in the file instead of caching the picture in memory
+        try (ImageInputStream input = new FileImageInputStream(file.toFile())) {
+            final var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalOperationException("Unsupported picture format");
+            }
+
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                // the header is enough to reject decompression bombs before any pixel is allocated
+                final var width = reader.getWidth(0);
+                final var height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalOperationException(
+                            String.format("Picture of %dx%d pixels is too large", width, height));
+                }
+
+                // subsample down to at most twice the target, the rest is scaled smoothly; a subsampled image is
+                // always scaled afterwards, so it is never mistaken for the untouched original
+                final var param = reader.getDefaultReadParam();
+                final var step = Math.max(1, Math.max(width, height) / (maxEdge * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+
+                final var format = reader.getOriginatingProvider().getFormatNames()[0].toLowerCase(Locale.ROOT);
+                return new Decoded(reader.read(0, param), "jpg".equals(format) ? "jpeg" : format);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalOperationException("Unreadable picture: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reads the EXIF orientation of a JPEG from its APP1 segment, segment by segment up to the start of scan.
+     *
+     * @return 1 to 8 as defined by EXIF, 1 (as stored) when the picture has no valid orientation
+     */
+    static int orientation(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            final var header = ByteBuffer.allocate(4);
+            if (!readFully(channel, header.limit(2)) || header.getShort(0) != (short) 0xFFD8) {
+                return 1;
+            }
+
+            while (readFully(channel, header.clear())) {
+                final var marker = header.getShort(0) & 0xFFFF;
+                final var length = header.getShort(2) & 0xFFFF;
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9 || length < 2) {
+                    return 1;
+                }
+
+                if (marker != 0xFFE1) {
+                    channel.position(channel.position() + length - 2);
+                    continue;
+                }
+
+                final var segment = ByteBuffer.allocate(length - 2);
+                if (!readFully(channel, segment)) {
+                    return 1;
+                }
+                final var orientation = exifOrientation(segment);
+                // an APP1 segment may also carry XMP, the EXIF one may come after it
+                if (orientation > 0) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return the orientation tag of IFD0, 1 when it is missing or invalid, 0 when the segment is not EXIF
+     */
+    private static int exifOrientation(ByteBuffer segment) {
+        try {
+            if (segment.getInt(0) != 0x45786966 || segment.getShort(4) != 0) {
+                return 0;
+            }
+
+            final var tiff = segment.position(6).slice();
+            tiff.order(tiff.getShort(0) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            if (tiff.getShort(2) != 42) {
+                return 1;
+            }
+
+            final var ifd = tiff.getInt(4);
+            final var entries = tiff.getShort(ifd) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                final var entry = ifd + 2 + i * 12;
+                if (tiff.getShort(entry) == 0x0112) {
+                    final var orientation = tiff.getShort(entry + 8);
+                    return orientation >= 1 && orientation <= 8 ? orientation : 1;
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            return 1;
+        }
+        return 1;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rotates and flips the pixels as the EXIF orientation says, the orientation 1 returns the source itself.
+     */
+    private static BufferedImage orient(BufferedImage source, int orientation) {
+        final var width = source.getWidth();
+        final var height = source.getHeight();
+        final var transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            default -> null;
+        };
+        if (transform == null) {
+            return source;
+        }
+
+        // orientations 5 to 8 turn the picture by a quarter
+        final var turned = orientation >= 5;
+        final var type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        final var oriented = new BufferedImage(turned ? height : width, turned ? width : height, type);
+        final var graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    /**
+     * Halves the picture with bilinear filtering until the next step reaches the target, which keeps the
+     * quality of a bicubic scale at a fraction of its cost.
+     */
+    private static BufferedImage scale(BufferedImage source, int edge) {
+        var current = source;
+        var width = source.getWidth();
+        var height = source.getHeight();
+        final var longest = Math.max(width, height);
+        if (longest <= edge) {
+            return source;
+        }
+
+        final var targetWidth = Math.max(1, (int) Math.round((double) width * edge / longest));
+        final var targetHeight = Math.max(1, (int) Math.round((double) height * edge / longest));
+        final var type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            final var next = new BufferedImage(width, height, type);
+            final var graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        final var writer = ImageIO.getImageWritersByFormatName(format).next();
+        final var output = new ByteArrayOutputStream();
+
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+
+            final var param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+
+            // no metadata is passed, the output carries the pixels only
+            writer.write(null, new IIOImage(opaque(image, format), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * The JPEG writer needs plain RGB, palette and grayscale-alpha sources are redrawn.
+     */
+    private static BufferedImage opaque(BufferedImage image, String format) {
+        if (!"jpeg".equals(format) || image.getType() == BufferedImage.TYPE_INT_RGB
+            || image.getType() == BufferedImage.TYPE_3BYTE_BGR || image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+
+        final var rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        final var graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * Copies a JPEG or PNG without its metadata: JPEG APP1 (EXIF, XMP), APP13 (IPTC) and comment segments, PNG
+     * text, time and EXIF chunks. Color profiles are kept. The segment headers are read from the file first, the
+     * kept segments are then read straight into the result, nothing else of the file is held in memory.
+     *
+     * @param limit size the result must stay below
+     * @return null when the file does not have the expected structure or the result would not be smaller than
+     * {@code limit}
+     */
+    static byte[] stripMetadata(Path file, String format, int limit) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            final var kept = "jpeg".equals(format) ? jpegSegments(channel)
+                    : "png".equals(format) ? pngChunks(channel)
+                    : null;
+            if (kept == null) {
+                return null;
+            }
+
+            var size = 0L;
+            for (long[] range : kept) {
+                size += range[1] - range[0];
+            }
+            if (size >= limit) {
+                return null;
+            }
+
+            final var result = ByteBuffer.allocate((int) size);
+            for (long[] range : kept) {
+                var position = range[0];
+                result.limit(result.position() + (int) (range[1] - range[0]));
+                while (result.hasRemaining()) {
+                    final var read = channel.read(result, position);
+                    if (read < 0) {
+                        return null;
+                    }
+                    position += read;
+                }
+            }
+            return result.array();
+        }
+    }
+
+    /**
+     * @return the [start, end) ranges of the file to keep, null when it is not a JPEG
+     */
+    private static List<long[]> jpegSegments(FileChannel channel) throws IOException {
+        final var size = channel.size();
+        final var header = ByteBuffer.allocate(4);
+        if (!readFully(channel.position(0), header.limit(2)) || header.getShort(0) != (short) 0xFFD8) {
+            return null;
+        }
+
+        final var kept = new ArrayList<long[]>();
+        kept.add(new long[]{0, 2});
+
+        var position = 2L;
+        while (readFully(channel.position(position), header.clear())) {
+            final var marker = header.getShort(0) & 0xFFFF;
+            if ((marker & 0xFF00) != 0xFF00) {
+                return null;
+            }
+            if (marker == 0xFFDA) {
+                // start of scan, the compressed data up to the end of the file is copied as is
+                kept.add(new long[]{position, size});
+                return kept;
+            }
+
+            final var end = position + 2 + (header.getShort(2) & 0xFFFF);
+            if (end > size) {
+                return null;
+            }
+            if (marker != 0xFFE1 && marker != 0xFFED && marker != 0xFFFE) {
+                kept.add(new long[]{position, end});
+            }
+            position = end;
+        }
+        return null;
+    }
+
+    /**
+     * @return the [start, end) ranges of the file to keep, null when it is not a PNG
+     */
+    private static List<long[]> pngChunks(FileChannel channel) throws IOException {
+        final var size = channel.size();
+        final var header = ByteBuffer.allocate(8);
+        if (!readFully(channel.position(0), header) || header.getLong(0) != 0x89504E470D0A1A0AL) {
+            return null;
+        }
+
+        final var kept = new ArrayList<long[]>();
+        kept.add(new long[]{0, 8});
+
+        var position = 8L;
+        while (position < size) {
+            if (!readFully(channel.position(position), header.clear())) {
+                return null;
+            }
+
+            final var end = position + 12 + (header.getInt(0) & 0xFFFFFFFFL);
+            if (end > size) {
+                return null;
+            }
+            final var type = new String(header.array(), 4, 4, StandardCharsets.US_ASCII);
+            if (!PNG_METADATA_CHUNKS.contains(type)) {
+                kept.add(new long[]{position, end});
+            }
+            position = end;
+        }
+        return kept;
+    }
+
+    private record Decoded(BufferedImage image, String format) {
+    }
+
+    public record ProcessedImage(byte[] image, byte[] thumbnail, String format, int width, int height) {
+    }
+}
@@ -0,0 +1,116 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import io.teamchallenge.project.bazario.exceptions.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps pictures as files under {@code app.pictures.local.dir}, served by {@code PictureController}.
+ * <p>
+ * Files are content-addressed: the name is the SHA-256 of the content plus the format, so storing the same content
+ * twice writes it once and a stored file never changes. Files are spread over 256 directories by the first two
+ * characters of the name.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.pictures.storage", havingValue = "local")
+public class LocalPictureStorage implements PictureStorage {
+
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}\\.(jpeg|png)");
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalPictureStorage(@Value("${app.pictures.local.dir}") String dir,
+                               @Value("${app.pictures.local.base_url}") String baseUrl) throws IOException {
+        this.root = Files.createDirectories(Path.of(dir)).toAbsolutePath();
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public StoredPicture store(byte[] content, String format) {
+        final var name = name(content, format);
+        final var path = path(name);
+
+        if (!Files.exists(path)) {
+            try {
+                Files.createDirectories(path.getParent());
+
+                // written next to the target and renamed, readers never see a partial file
+                final var temp = Files.createTempFile(path.getParent(), name, ".tmp");
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    final var buffer = ByteBuffer.wrap(content);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new AppException("Failed to store file", e);
+            }
+        }
+
+        return new StoredPicture(baseUrl + "/" + name, name);
+    }
+
+    @Override
+    public Optional<String> publicIdOf(byte[] content, String format) {
+        return Optional.of(name(content, format));
+    }
+
+    @Override
+    public void delete(String publicId) {
+        if (!NAME.matcher(publicId).matches()) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(path(publicId));
+        } catch (IOException e) {
+            throw new AppException("Failed to delete file", e);
+        }
+    }
+
+    /**
+     * @return the file of a stored picture, empty for names this storage never produces
+     */
+    public Optional<Path> find(String name) {
+        if (!NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+
+        final var path = path(name);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private static String name(byte[] content, String format) {
+        return sha256(content) + "." + format;
+    }
+
+    private Path path(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the assets of advertisement pictures. {@code app.pictures.storage} selects the implementation:
+ * {@code cloudinary} (default) or {@code local}.
+ */
+public interface PictureStorage {
+
+    /**
+     * @param format file format of the content, {@code jpeg} or {@code png}
+     */
+    StoredPicture store(byte[] content, String format);
+
+    void delete(String publicId);
+
+    /**
+     * @return the public id {@link #store} returns for the content when it is derived from the content alone,
+     * empty when every call stores a new asset
+     */
+    default Optional<String> publicIdOf(byte[] content, String format) {
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes a batch of assets, assets that are already gone count as deleted.
+     *
+     * @return the public ids that could not be deleted
+     */
+    default Set<String> deleteAll(Collection<String> publicIds) {
+        final var failed = new HashSet<String>();
+        for (String publicId : publicIds) {
+            try {
+                delete(publicId);
+            } catch (RuntimeException e) {
+                failed.add(publicId);
+            }
+        }
+        return failed;
+    }
+
+    record StoredPicture(String url, String publicId) {
+    }
+}
@@ -0,0 +1,280 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import io.teamchallenge.project.bazario.exceptions.AppException;
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.service.PictureDeletionWorker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads the pictures of one request concurrently.
+ * <p>
+ * Every picture is prepared by {@link ImageProcessor} first and goes up as two assets, the scaled picture and its
+ * thumbnail. Received files are streamed to {@code app.pictures.staging_dir} as {@link StagedPicture}s first, which
+ * checks their size and format and hashes them without holding them in memory. Pictures are identified by the
+ * SHA-256 of the received bytes, a picture that was uploaded before reuses
+ * the assets of the earlier upload without contacting the image host. Shared assets are only deleted together with
+ * the last picture referencing them, see {@link PictureDeletionWorker}. Assets that are reused, or stored again
+ * under the same public id, are retained first, so a pending deletion does not remove them before the new picture
+ * commits.
+ * <p>
+ * Uploads run on a shared bounded pool, at most {@code app.pictures.upload_per_request} at a time per request, and
+ * the whole request must finish within {@code app.pictures.upload_timeout_s}. Results keep the order of the files.
+ * When any upload fails or the deadline passes, the remaining uploads are skipped and every picture that was
+ * (or later gets) uploaded is deleted again. When the workers and their queue are all busy the request is refused
+ * with {@link ServiceBusyException} the same way, instead of uploading on the request thread past the deadline.
+ */
+@Slf4j
+@Component
+public class PictureUploader {
+
+    private final PictureStorage pictureStorage;
+    private final ImageProcessor imageProcessor;
+    private final AdvPictureRepository advPictureRepository;
+    private final PictureDeletionWorker pictureDeletionWorker;
+    private final Path stagingDir;
+    private final long maxFileSize;
+    private final ThreadPoolExecutor executor;
+    private final int maxPerRequest;
+    private final long timeoutNanos;
+
+    public PictureUploader(PictureStorage pictureStorage,
+                           ImageProcessor imageProcessor,
+                           AdvPictureRepository advPictureRepository,
+                           PictureDeletionWorker pictureDeletionWorker,
+                           @Value("${app.pictures.staging_dir}") String stagingDir,
+                           @Value("${spring.servlet.multipart.max-file-size}") DataSize maxFileSize,
+                           @Value("${app.pictures.upload_threads}") int threads,
+                           @Value("${app.pictures.upload_per_request}") int maxPerRequest,
+                           @Value("${app.pictures.upload_timeout_s}") long timeoutSeconds) throws IOException {
+        this.pictureStorage = pictureStorage;
+        this.imageProcessor = imageProcessor;
+        this.advPictureRepository = advPictureRepository;
+        this.pictureDeletionWorker = pictureDeletionWorker;
+        this.stagingDir = Files.createDirectories(Path.of(stagingDir));
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxPerRequest = maxPerRequest;
+        this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+
+        final var threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    final var thread = new Thread(runnable, "picture-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public List<UploadedPicture> uploadAll(List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            return List.of();
+        }
+
+        final var deadline = System.nanoTime() + timeoutNanos;
+        final var permits = new Semaphore(maxPerRequest);
+        final var failed = new AtomicBoolean();
+        final var uploads = new ArrayList<CompletableFuture<UploadedPicture>>(files.size());
+
+        try {
+            for (MultipartFile file : files) {
+                if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException("picture upload deadline exceeded");
+                }
+                if (failed.get()) {
+                    break;
+                }
+
+                final CompletableFuture<UploadedPicture> upload;
+                try {
+                    upload = CompletableFuture.supplyAsync(() -> {
+                        if (failed.get()) {
+                            throw new CancellationException("another upload of the request failed");
+                        }
+                        return upload(file);
+                    }, executor);
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    deleteUploaded(uploads, failed);
+                    throw new ServiceBusyException("Too many picture uploads in progress");
+                }
+
+                uploads.add(upload.whenComplete((result, e) -> {
+                    if (e != null) {
+                        failed.set(true);
+                    }
+                    permits.release();
+                }));
+            }
+
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0]))
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            return uploads.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deleteUploaded(uploads, failed);
+            throw new AppException("Picture upload interrupted", e);
+        } catch (ExecutionException e) {
+            deleteUploaded(uploads, failed);
+            // a picture the processor rejects is the client's fault, not an upload failure
+            if (e.getCause() instanceof IllegalOperationException invalid) {
+                throw invalid;
+            }
+            throw new AppException("Failed to upload pictures", e);
+        } catch (TimeoutException e) {
+            deleteUploaded(uploads, failed);
+            throw new AppException("Failed to upload pictures", e);
+        }
+    }
+
+    /**
+     * Streams a received file to {@code target}.
+     *
+     * @throws IllegalOperationException when the file is too large or not a supported picture
+     */
+    public StagedPicture stage(MultipartFile file, Path target) {
+        try (InputStream in = file.getInputStream()) {
+            return StagedPicture.copy(in, target, maxFileSize);
+        } catch (IOException e) {
+            throw new AppException("Failed to stage picture", e);
+        }
+    }
+
+    /**
+     * Inspects a file staged by an earlier request.
+     */
+    public StagedPicture inspect(Path file) {
+        try {
+            return StagedPicture.inspect(file, maxFileSize);
+        } catch (IOException e) {
+            throw new AppException("Failed to read staged picture", e);
+        }
+    }
+
+    /**
+     * Processes and uploads one picture on the calling thread, unless a picture with the same content is stored.
+     */
+    public UploadedPicture upload(StagedPicture original) {
+        final var contentHash = original.contentHash();
+
+        final var known = advPictureRepository.findFirstByContentHash(contentHash);
+        if (known.isPresent()) {
+            final var picture = known.get();
+            pictureDeletionWorker.retain(Arrays.asList(picture.getExternalToken(), picture.getThumbnailToken()));
+
+            // a picture that still exists once its assets are retained kept them from being deleted meanwhile
+            if (advPictureRepository.existsById(picture.getId())) {
+                log.debug("picture {} reuses the assets of picture {}", contentHash, picture.getId());
+                return new UploadedPicture(picture.getUrl(), picture.getExternalToken(), picture.getThumbnailUrl(),
+                        picture.getThumbnailToken(), contentHash, true);
+            }
+        }
+
+        final var processed = imageProcessor.process(original);
+
+        // a content-addressed storage skips content it already has, which may be scheduled for deletion
+        final var retained = new ArrayList<String>(2);
+        pictureStorage.publicIdOf(processed.image(), processed.format()).ifPresent(retained::add);
+        pictureStorage.publicIdOf(processed.thumbnail(), processed.format()).ifPresent(retained::add);
+        pictureDeletionWorker.retain(retained);
+
+        final var image = pictureStorage.store(processed.image(), processed.format());
+        try {
+            final var thumbnail = pictureStorage.store(processed.thumbnail(), processed.format());
+            return new UploadedPicture(image.url(), image.publicId(), thumbnail.url(), thumbnail.publicId(),
+                    contentHash, false);
+        } catch (RuntimeException e) {
+            pictureStorage.delete(image.publicId());
+            throw e;
+        }
+    }
+
+
+    /**
+     * Deletes both assets of an uploaded picture.
+     */
+    public void delete(String publicId, String thumbnailPublicId) {
+        if (publicId != null) {
+            pictureStorage.delete(publicId);
+        }
+        // a small picture is its own thumbnail in a content-addressed storage
+        if (thumbnailPublicId != null && !thumbnailPublicId.equals(publicId)) {
+            pictureStorage.delete(thumbnailPublicId);
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void deleteUploaded(List<CompletableFuture<UploadedPicture>> uploads,
+                                AtomicBoolean failed) {
+        failed.set(true);
+
+        // uploads still in flight are cleaned up as soon as they finish, reused assets belong to other pictures
+        uploads.forEach(upload -> upload.thenAccept(result -> {
+            if (result.reused()) {
+                return;
+            }
+            try {
+                delete(result.publicId(), result.thumbnailPublicId());
+            } catch (RuntimeException e) {
+                log.warn("failed to delete uploaded picture {}", result.publicId(), e);
+            }
+        }));
+    }
+
+    private UploadedPicture upload(MultipartFile file) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(stagingDir, "upload-", ".tmp");
+            return upload(stage(file, temp));
+        } catch (IOException e) {
+            throw new AppException("Failed to stage picture", e);
+        } finally {
+            deleteTemp(temp);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.warn("failed to delete staged picture {}", temp, e);
+        }
+    }
+
+    /**
+     * @param reused the assets belong to an earlier upload of the same content
+     */
+    public record UploadedPicture(String url, String publicId, String thumbnailUrl, String thumbnailPublicId,
+                                  String contentHash, boolean reused) {
+    }
+}
@@ -0,0 +1,116 @@
+package io.teamchallenge.project.bazario.helpers;
+
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A received picture written to a local file, with its format sniffed from the magic bytes and the SHA-256 of
+ * its content.
+ * <p>
+ * Files are copied and inspected through one fixed {@value #BUFFER_SIZE} byte buffer, the heap used per picture does
+ * not depend on its size.
+ */
+public record StagedPicture(Path file, String format, long size, String contentHash) {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Copies the stream to {@code target}, which is deleted again when the content is rejected.
+     *
+     * @throws IllegalOperationException when the content is larger than {@code maxSize} or not a supported picture
+     */
+    public static StagedPicture copy(InputStream in, Path target, long maxSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return read(in, channel, target, maxSize);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /**
+     * Inspects a file staged earlier.
+     */
+    public static StagedPicture inspect(Path file, long maxSize) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, null, file, maxSize);
+        }
+    }
+
+    private static StagedPicture read(InputStream in, FileChannel out, Path file, long maxSize) throws IOException {
+        final var digest = sha256();
+        final var buffer = new byte[BUFFER_SIZE];
+        final var byteBuffer = ByteBuffer.wrap(buffer);
+        String format = null;
+        var size = 0L;
+
+        int read;
+        while ((read = in.readNBytes(buffer, 0, BUFFER_SIZE)) > 0) {
+            if (format == null) {
+                format = sniff(buffer, read);
+            }
+
+            size += read;
+            if (size > maxSize) {
+                throw new IllegalOperationException(String.format("Picture is larger than %d bytes", maxSize));
+            }
+
+            digest.update(buffer, 0, read);
+
+            if (out != null) {
+                byteBuffer.clear().limit(read);
+                while (byteBuffer.hasRemaining()) {
+                    out.write(byteBuffer);
+                }
+            }
+        }
+
+        if (format == null) {
+            throw new IllegalOperationException("Picture is empty");
+        }
+
+        return new StagedPicture(file, format, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * @return the ImageIO format name of the content, judged by its first bytes
+     */
+    private static String sniff(byte[] header, int length) {
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "jpeg";
+        }
+        if (length >= HEADER_SIZE && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N'
+            && header[3] == 'G' && header[4] == '\r' && header[5] == '\n' && header[6] == 0x1A && header[7] == '\n') {
+            return "png";
+        }
+        if (length >= 4 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "gif";
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return "bmp";
+        }
+
+        throw new IllegalOperationException("Unsupported picture format");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
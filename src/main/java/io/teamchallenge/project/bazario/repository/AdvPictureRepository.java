@@ -1,8 +1,31 @@
 package io.teamchallenge.project.bazario.repository;
 
 import io.teamchallenge.project.bazario.entity.AdvPicture;
+import io.teamchallenge.project.bazario.entity.AdvPictureRow;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface AdvPictureRepository extends JpaRepository<AdvPicture, Long> {
 
+    @Query("select new io.teamchallenge.project.bazario.entity.AdvPictureRow(p.advertisement.id, p.id, p.url, p.thumbnailUrl, p.status) " +
+           "from AdvPicture p where p.advertisement.id in :advertisementIds order by p.id")
+    List<AdvPictureRow> findRowsByAdvertisementIds(@Param("advertisementIds") Collection<Long> advertisementIds);
+
+    List<AdvPicture> findAllByStatus(PictureStatus status);
+
+    Optional<AdvPicture> findFirstByContentHash(String contentHash);
+
+    /**
+     * @return the given public ids that some picture still uses as its picture or thumbnail
+     */
+    @Query("select p.externalToken from AdvPicture p where p.externalToken in :tokens " +
+           "union select p.thumbnailToken from AdvPicture p where p.thumbnailToken in :tokens")
+    Set<String> findReferencedTokens(@Param("tokens") Collection<String> tokens);
 }
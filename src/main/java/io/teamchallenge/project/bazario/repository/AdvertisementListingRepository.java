@@ -0,0 +1,24 @@
+package io.teamchallenge.project.bazario.repository;
+
+import io.teamchallenge.project.bazario.entity.Advertisement;
+import io.teamchallenge.project.bazario.entity.AdvertisementListItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read path for advertisement listings that selects {@link AdvertisementListItem} rows in a single statement
+ * instead of loading entities with their eager pictures and user.
+ */
+public interface AdvertisementListingRepository {
+
+    Page<AdvertisementListItem> findListing(Specification<Advertisement> specification, Pageable pageable);
+
+    List<AdvertisementListItem> findListing(Specification<Advertisement> specification, Sort sort, int limit);
+
+    List<AdvertisementListItem> findListingByIds(Collection<Long> ids);
+}
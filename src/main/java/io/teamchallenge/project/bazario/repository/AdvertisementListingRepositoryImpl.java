@@ -0,0 +1,102 @@
+package io.teamchallenge.project.bazario.repository;
+
+import io.teamchallenge.project.bazario.entity.Advertisement;
+import io.teamchallenge.project.bazario.entity.AdvertisementListItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class AdvertisementListingRepositoryImpl implements AdvertisementListingRepository {
+
+    private final EntityManager entityManager;
+
+    public AdvertisementListingRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<AdvertisementListItem> findListing(Specification<Advertisement> specification, Pageable pageable) {
+        final var query = entityManager.createQuery(listingQuery(specification, pageable.getSort()))
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+
+        // the count query is skipped when the page itself tells the total
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(specification));
+    }
+
+    @Override
+    public List<AdvertisementListItem> findListing(Specification<Advertisement> specification, Sort sort, int limit) {
+        return entityManager.createQuery(listingQuery(specification, sort))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<AdvertisementListItem> findListingByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Specification<Advertisement> byIds = (root, query, criteriaBuilder) -> root.get("id").in(ids);
+
+        return entityManager.createQuery(listingQuery(byIds, Sort.unsorted()))
+                .getResultList();
+    }
+
+    private CriteriaQuery<AdvertisementListItem> listingQuery(Specification<Advertisement> specification, Sort sort) {
+        final var criteriaBuilder = entityManager.getCriteriaBuilder();
+        final var query = criteriaBuilder.createQuery(AdvertisementListItem.class);
+        final var root = query.from(Advertisement.class);
+
+        query.select(criteriaBuilder.construct(AdvertisementListItem.class,
+                root.get("id"),
+                root.get("title"),
+                root.get("description"),
+                root.get("category"),
+                root.get("price"),
+                root.get("status"),
+                root.get("createDate")));
+
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+
+        return query;
+    }
+
+    private long count(Specification<Advertisement> specification) {
+        final var criteriaBuilder = entityManager.getCriteriaBuilder();
+        final var query = criteriaBuilder.createQuery(Long.class);
+        final var root = query.from(Advertisement.class);
+
+        query.select(criteriaBuilder.count(root));
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Advertisement> specification, Root<Advertisement> root,
+                                           CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        if (specification == null) {
+            return;
+        }
+
+        final var predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -2,16 +2,45 @@ package io.teamchallenge.project.bazario.repository;
 
 
 import io.teamchallenge.project.bazario.entity.Advertisement;
+import io.teamchallenge.project.bazario.entity.AdvertisementDetails;
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
 import io.teamchallenge.project.bazario.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 public interface AdvertisementRepository extends JpaRepository<Advertisement, Long>,
-        JpaSpecificationExecutor<Advertisement> {
+        JpaSpecificationExecutor<Advertisement>, AdvertisementListingRepository {
 
     Optional<Advertisement> findByIdAndUser(Long advertisementId, User user);
 
     long deleteAdvertisementById(Long id);
+
+    long countByStatusTrueAndCategory(Category category);
+
+    long countByStatusTrueAndPriceGreaterThanEqual(BigDecimal from);
+
+    long countByStatusTrueAndPriceGreaterThanEqualAndPriceLessThan(BigDecimal from, BigDecimal to);
+
+    @Query("select new io.teamchallenge.project.bazario.entity.AdvertisementSnapshot(" +
+           "a.id, a.title, a.description, a.category, a.price, a.status, a.createDate, a.user.id) " +
+           "from Advertisement a where a.id > :lastId order by a.id")
+    List<AdvertisementSnapshot> findSnapshots(@Param("lastId") long lastId, Pageable pageable);
+
+    @Query("select new io.teamchallenge.project.bazario.entity.AdvertisementDetails(" +
+           "a.id, a.title, a.description, a.category, a.price, a.status, a.createDate, a.user.id, a.version) " +
+           "from Advertisement a where a.id = :id")
+    Optional<AdvertisementDetails> findDetailsById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Advertisement a set a.version = a.version + 1 where a.id = :id")
+    int incrementVersion(@Param("id") Long id);
 }
@@ -9,5 +9,7 @@ import java.util.List;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findAllByAdvertisement(Advertisement advertisement);
 
+    List<Comment> findAllByAdvertisementId(Long advertisementId);
+
     void deleteAllByAdvertisement(Advertisement advertisement);
 }
@@ -0,0 +1,29 @@
+package io.teamchallenge.project.bazario.repository;
+
+import io.teamchallenge.project.bazario.entity.PendingDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PendingDeletionRepository extends JpaRepository<PendingDeletion, Long> {
+
+    /**
+     * Locks the due rows, rows locked by another instance are skipped instead of waited for.
+     */
+    @Query(value = "select * from pending_deletions where dead = false and next_attempt_at <= :now " +
+                   "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<PendingDeletion> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Moves the next attempt of the given assets to {@code until}, waits for a drain holding one of the rows.
+     */
+    @Modifying
+    @Query("update PendingDeletion d set d.nextAttemptAt = :until " +
+           "where d.publicId in :publicIds and d.dead = false and d.nextAttemptAt < :until")
+    int postpone(@Param("publicIds") Collection<String> publicIds, @Param("until") LocalDateTime until);
+}
@@ -0,0 +1,32 @@
+package io.teamchallenge.project.bazario.repository;
+
+import io.teamchallenge.project.bazario.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    @Query("select t from RefreshToken t join fetch t.user where t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findWithUserByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :tokenHash and t.user.id = :userId")
+    int deleteByTokenHashAndUserId(@Param("tokenHash") String tokenHash, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expires < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,6 +2,8 @@ package io.teamchallenge.project.bazario.repository;
 
 import io.teamchallenge.project.bazario.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -14,5 +16,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByPasswordVerificationToken(String token);
 
-    Optional<User> findByRefreshTokenToken(String token);
+    @Query("select u.securityStamp from User u where u.id = :id")
+    Optional<String> findSecurityStampById(@Param("id") Long id);
 }
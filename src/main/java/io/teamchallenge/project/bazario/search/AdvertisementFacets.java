@@ -0,0 +1,156 @@
+package io.teamchallenge.project.bazario.search;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.FacetsDto;
+import io.teamchallenge.project.bazario.web.dto.PriceBucketDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of active advertisements per category and per price bucket.
+ * Seeded from the database once at startup and then kept current from {@link AdvertisementChangedEvent}s,
+ * so reading facets never queries the database.
+ * <p>
+ * Changes announced while the counts are queried may or may not be part of them, so they are held back and the
+ * counts are queried again, up to {@value #SEED_ATTEMPTS} times. When changes keep coming the last counts are taken
+ * and the held back changes are applied on top of them.
+ */
+@Slf4j
+@Component
+public class AdvertisementFacets {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int SEED_ATTEMPTS = 5;
+
+    private final AdvertisementRepository advertisementRepository;
+    private final BigDecimal[] priceBounds;
+
+    private final AtomicLongArray categoryCounts = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLongArray priceCounts;
+
+    private final Object lock = new Object();
+    private List<AdvertisementChangedEvent> changedWhileSeeding;
+
+    public AdvertisementFacets(AdvertisementRepository advertisementRepository,
+                               @Value("${app.facets.price_buckets}") List<BigDecimal> priceBounds) {
+        this.advertisementRepository = advertisementRepository;
+        this.priceBounds = priceBounds.stream().sorted().toArray(BigDecimal[]::new);
+        this.priceCounts = new AtomicLongArray(this.priceBounds.length + 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        for (int attempt = 1; ; attempt++) {
+            synchronized (lock) {
+                changedWhileSeeding = new ArrayList<>();
+            }
+
+            final var categories = new long[CATEGORIES.length];
+            for (Category category : CATEGORIES) {
+                categories[category.ordinal()] = advertisementRepository.countByStatusTrueAndCategory(category);
+            }
+
+            final var prices = new long[priceCounts.length()];
+            for (int bucket = 0; bucket < prices.length; bucket++) {
+                prices[bucket] = bucket == priceBounds.length
+                        ? advertisementRepository.countByStatusTrueAndPriceGreaterThanEqual(lowerBound(bucket))
+                        : advertisementRepository.countByStatusTrueAndPriceGreaterThanEqualAndPriceLessThan(
+                        lowerBound(bucket), priceBounds[bucket]);
+            }
+
+            synchronized (lock) {
+                if (changedWhileSeeding.isEmpty() || attempt == SEED_ATTEMPTS) {
+                    for (int i = 0; i < categories.length; i++) {
+                        categoryCounts.set(i, categories[i]);
+                    }
+                    for (int i = 0; i < prices.length; i++) {
+                        priceCounts.set(i, prices[i]);
+                    }
+
+                    if (!changedWhileSeeding.isEmpty()) {
+                        log.warn("{} advertisement changes during the last facets seeding, the counts may be off",
+                                changedWhileSeeding.size());
+                    }
+                    changedWhileSeeding.forEach(this::apply);
+                    changedWhileSeeding = null;
+                    break;
+                }
+            }
+        }
+
+        log.info("advertisement facets seeded: categories {}, prices {}", categoryCounts, priceCounts);
+    }
+
+    @Order(AdvertisementChangedEvent.INDEX_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        synchronized (lock) {
+            if (changedWhileSeeding != null) {
+                changedWhileSeeding.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    public FacetsDto getFacets() {
+        final var categories = new LinkedHashMap<String, Long>();
+        for (Category category : CATEGORIES) {
+            categories.put(category.name(), categoryCounts.get(category.ordinal()));
+        }
+
+        final var prices = new ArrayList<PriceBucketDto>();
+        for (int bucket = 0; bucket < priceCounts.length(); bucket++) {
+            prices.add(new PriceBucketDto(lowerBound(bucket),
+                    bucket < priceBounds.length ? priceBounds[bucket] : null,
+                    priceCounts.get(bucket)));
+        }
+
+        return new FacetsDto(categories, prices);
+    }
+
+    private void apply(AdvertisementChangedEvent event) {
+        apply(event.previous(), -1);
+        apply(event.current(), 1);
+    }
+
+    private void apply(AdvertisementSnapshot advertisement, int delta) {
+        if (advertisement == null || !advertisement.status()) {
+            return;
+        }
+
+        if (advertisement.category() != null) {
+            categoryCounts.addAndGet(advertisement.category().ordinal(), delta);
+        }
+
+        if (advertisement.price() != null) {
+            priceCounts.addAndGet(priceBucket(advertisement.price()), delta);
+        }
+    }
+
+    private int priceBucket(BigDecimal price) {
+        final var position = Arrays.binarySearch(priceBounds, price);
+
+        // a price equal to a bound opens the next bucket
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private BigDecimal lowerBound(int bucket) {
+        return bucket == 0 ? BigDecimal.ZERO : priceBounds[bucket - 1];
+    }
+}
@@ -0,0 +1,391 @@
+package io.teamchallenge.project.bazario.search;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementCursor;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over advertisement title and description.
+ * <p>
+ * Every term of an advertisement points to a sorted posting list of advertisement ids. A text query is split into
+ * terms, each query term matches every indexed term containing it (the same semantics as the former
+ * {@code lower(title) LIKE '%term%'}), and the resulting posting lists are intersected. The indexed terms containing
+ * a query term are found through the substrings of up to {@value #GRAM_LENGTH} chars of every indexed term, so a
+ * query does not scan the whole vocabulary. Price ranges of active
+ * advertisements are resolved by the {@link PriceIndex}. Category, status and sorting are resolved from the
+ * attributes kept next to the postings, so the database is only asked for one page of ids.
+ */
+@Slf4j
+@Component
+public class AdvertisementSearchIndex {
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+    private static final int GRAM_LENGTH = 3;
+
+    private final AdvertisementRepository advertisementRepository;
+    private final boolean enabled;
+
+    private final Map<String, LongPostings> postings = new HashMap<>();
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+    private final Map<Long, IndexedAdvertisement> advertisements = new HashMap<>();
+    private final PriceIndex priceIndex = new PriceIndex();
+    private final Set<Long> removedWhileBuilding = new HashSet<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean building;
+    private volatile boolean ready;
+
+    public AdvertisementSearchIndex(AdvertisementRepository advertisementRepository,
+                                    @Value("${app.search.index_enabled}") boolean enabled) {
+        this.advertisementRepository = advertisementRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            log.info("advertisement search index is disabled");
+            return;
+        }
+
+        final var startedAt = System.currentTimeMillis();
+        clear();
+        building = true;
+
+        var lastId = 0L;
+        var count = 0;
+        while (true) {
+            final var batch = advertisementRepository.findSnapshots(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (AdvertisementSnapshot snapshot : batch) {
+                    if (!advertisements.containsKey(snapshot.id()) && !removedWhileBuilding.contains(snapshot.id())) {
+                        put(snapshot);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            count += batch.size();
+            lastId = batch.get(batch.size() - 1).id();
+        }
+
+        lock.writeLock().lock();
+        try {
+            removedWhileBuilding.clear();
+            building = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("advertisement search index built: {} advertisements, {} terms in {} ms",
+                count, postings.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    @Order(AdvertisementChangedEvent.INDEX_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(event.advertisementId());
+
+            if (event.isDeleted()) {
+                if (building) {
+                    removedWhileBuilding.add(event.advertisementId());
+                }
+            } else {
+                put(event.current());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true when the filter has a text query or a price range of active advertisements
+     */
+    public boolean canServe(AdvertisementFilter filter) {
+        return ready && (hasText(filter) || filter.hasPriceRange() && Boolean.TRUE.equals(filter.status()));
+    }
+
+    public SearchResult search(AdvertisementFilter filter, PageRequest pageRequest) {
+        lock.readLock().lock();
+        try {
+            final var matches = findMatches(filter, advertisement -> true);
+
+            matches.sort(comparator(pageRequest.getSort()));
+
+            final var from = (int) Math.min(pageRequest.getOffset(), matches.size());
+            final var to = Math.min(from + pageRequest.getPageSize(), matches.size());
+
+            final var ids = matches.subList(from, to).stream()
+                    .map(IndexedAdvertisement::id)
+                    .toList();
+
+            return new SearchResult(ids, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset variant of {@link #search}: up to {@code limit} ids following the cursor position.
+     */
+    public List<Long> searchAfter(AdvertisementFilter filter, AdvertisementCursor cursor, int limit) {
+        lock.readLock().lock();
+        try {
+            final Predicate<IndexedAdvertisement> afterCursor = cursor.isFirst()
+                    ? advertisement -> true
+                    : isAfter(cursor);
+
+            final var matches = findMatches(filter, afterCursor);
+            matches.sort(comparator(cursor.getSort()));
+
+            return matches.subList(0, Math.min(limit, matches.size())).stream()
+                    .map(IndexedAdvertisement::id)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<IndexedAdvertisement> findMatches(AdvertisementFilter filter,
+                                                   Predicate<IndexedAdvertisement> predicate) {
+        final var matches = new ArrayList<IndexedAdvertisement>();
+        for (long id : findCandidates(filter)) {
+            final var advertisement = advertisements.get(id);
+            if (advertisement != null
+                && advertisement.matches(filter)
+                && predicate.test(advertisement)) {
+                matches.add(advertisement);
+            }
+        }
+
+        return matches;
+    }
+
+    private long[] findCandidates(AdvertisementFilter filter) {
+        final var byPrice = filter.hasPriceRange() && Boolean.TRUE.equals(filter.status())
+                ? priceIndex.findInRange(filter.category(),
+                PriceIndex.lowerBoundCents(filter.minPrice()), PriceIndex.upperBoundCents(filter.maxPrice()))
+                : null;
+
+        if (!hasText(filter)) {
+            return byPrice;
+        }
+
+        final var byText = findByText(filter.title());
+
+        return byPrice == null ? byText : LongPostings.intersect(byText, byPrice);
+    }
+
+    private static boolean hasText(AdvertisementFilter filter) {
+        return filter.title() != null && !Tokenizer.tokenize(filter.title()).isEmpty();
+    }
+
+    private long[] findByText(String text) {
+        long[] result = null;
+
+        for (String queryTerm : Tokenizer.tokenize(text)) {
+            final var termMatches = LongPostings.union(findContaining(queryTerm));
+
+            result = result == null ? termMatches : LongPostings.intersect(result, termMatches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+
+        return result == null ? new long[0] : result;
+    }
+
+    /**
+     * @return postings of the indexed terms containing the query term, found through the rarest of its grams
+     */
+    private List<LongPostings> findContaining(String queryTerm) {
+        final var queryGrams = queryTerm.length() <= GRAM_LENGTH
+                ? List.of(queryTerm)
+                : grams(queryTerm, GRAM_LENGTH, GRAM_LENGTH);
+
+        Set<String> candidates = null;
+        for (String gram : queryGrams) {
+            final var terms = termsByGram.get(gram);
+            if (terms == null) {
+                return List.of();
+            }
+            if (candidates == null || terms.size() < candidates.size()) {
+                candidates = terms;
+            }
+        }
+
+        final var matchingPostings = new ArrayList<LongPostings>();
+        for (String term : candidates) {
+            if (term.contains(queryTerm)) {
+                matchingPostings.add(postings.get(term));
+            }
+        }
+
+        return matchingPostings;
+    }
+
+    /**
+     * Distinct substrings of the term from {@code minLength} to {@code maxLength} chars long.
+     */
+    private static List<String> grams(String term, int minLength, int maxLength) {
+        final var grams = new LinkedHashSet<String>();
+        for (int gramLength = minLength; gramLength <= maxLength; gramLength++) {
+            for (int i = 0; i + gramLength <= term.length(); i++) {
+                grams.add(term.substring(i, i + gramLength));
+            }
+        }
+        return new ArrayList<>(grams);
+    }
+
+    private void put(AdvertisementSnapshot snapshot) {
+        final var terms = new LinkedHashSet<String>();
+        terms.addAll(Tokenizer.tokenize(snapshot.title()));
+        terms.addAll(Tokenizer.tokenize(snapshot.description()));
+
+        final var advertisement = new IndexedAdvertisement(snapshot.id(), snapshot.category(), snapshot.status(),
+                snapshot.price(), snapshot.createDate(), terms.toArray(new String[0]));
+
+        advertisements.put(advertisement.id(), advertisement);
+        for (String term : advertisement.terms()) {
+            postings.computeIfAbsent(term, key -> {
+                for (String gram : grams(key, 1, GRAM_LENGTH)) {
+                    termsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+                }
+                return new LongPostings();
+            }).add(advertisement.id());
+        }
+
+        if (advertisement.status() && advertisement.price() != null) {
+            priceIndex.add(advertisement.id(), advertisement.category(), PriceIndex.toCents(advertisement.price()));
+        }
+    }
+
+    private void remove(Long id) {
+        final var advertisement = advertisements.remove(id);
+        if (advertisement == null) {
+            return;
+        }
+
+        for (String term : advertisement.terms()) {
+            final var termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                    for (String gram : grams(term, 1, GRAM_LENGTH)) {
+                        final var terms = termsByGram.get(gram);
+                        if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                            termsByGram.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (advertisement.status() && advertisement.price() != null) {
+            priceIndex.remove(id, advertisement.category(), PriceIndex.toCents(advertisement.price()));
+        }
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            postings.clear();
+            termsByGram.clear();
+            advertisements.clear();
+            priceIndex.clear();
+            removedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Predicate<IndexedAdvertisement> isAfter(AdvertisementCursor cursor) {
+        final var keyValue = cursor.keyValue();
+        final long lastId = cursor.id();
+
+        return advertisement -> {
+            var result = switch (cursor.property()) {
+                case "price" -> advertisement.price().compareTo((BigDecimal) keyValue);
+                case "createDate" -> advertisement.createDate().compareTo((LocalDateTime) keyValue);
+                default -> 0;
+            };
+
+            if (result == 0) {
+                result = Long.compare(advertisement.id(), lastId);
+            }
+
+            return cursor.descending() ? result < 0 : result > 0;
+        };
+    }
+
+    private static Comparator<IndexedAdvertisement> comparator(Sort sort) {
+        Comparator<IndexedAdvertisement> comparator = null;
+
+        for (Sort.Order order : sort) {
+            Comparator<IndexedAdvertisement> next = switch (order.getProperty()) {
+                case "price" -> Comparator.comparing(IndexedAdvertisement::price,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "createDate" -> Comparator.comparing(IndexedAdvertisement::createDate,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "id" -> Comparator.comparingLong(IndexedAdvertisement::id);
+                default -> null;
+            };
+
+            if (next != null) {
+                next = order.isDescending() ? next.reversed() : next;
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+        }
+
+        final Comparator<IndexedAdvertisement> byId = Comparator.comparingLong(IndexedAdvertisement::id);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private record IndexedAdvertisement(long id,
+                                        Category category,
+                                        boolean status,
+                                        BigDecimal price,
+                                        LocalDateTime createDate,
+                                        String[] terms) {
+
+        boolean matches(AdvertisementFilter filter) {
+            return (filter.category() == null || filter.category() == category)
+                   && (filter.status() == null || filter.status() == status)
+                   && (filter.minPrice() == null || price != null && price.compareTo(filter.minPrice()) >= 0)
+                   && (filter.maxPrice() == null || price != null && price.compareTo(filter.maxPrice()) <= 0);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.teamchallenge.project.bazario.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable sorted set of advertisement ids backed by a primitive array.
+ * Ids come from a sequence, so the common case of indexing a new advertisement is an append.
+ */
+final class LongPostings {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids = EMPTY;
+    private int size;
+
+    boolean add(long id) {
+        if (size > 0 && ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return true;
+        }
+
+        final var position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            return false;
+        }
+
+        final var insertAt = -position - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+
+        return true;
+    }
+
+    boolean remove(long id) {
+        final var position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0) {
+            return false;
+        }
+
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+
+        return true;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Unions several posting lists into one sorted array without duplicates.
+     */
+    static long[] union(List<LongPostings> postingsList) {
+        if (postingsList.size() == 1) {
+            return postingsList.get(0).toArray();
+        }
+
+        var total = 0;
+        for (LongPostings postings : postingsList) {
+            total += postings.size;
+        }
+
+        final var all = new long[total];
+        var offset = 0;
+        for (LongPostings postings : postingsList) {
+            System.arraycopy(postings.ids, 0, all, offset, postings.size);
+            offset += postings.size;
+        }
+
+        Arrays.sort(all);
+
+        var unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[unique++] = all[i];
+            }
+        }
+
+        return unique == all.length ? all : Arrays.copyOf(all, unique);
+    }
+
+    static long[] intersect(long[] left, long[] right) {
+        final var result = new long[Math.min(left.length, right.length)];
+        var i = 0;
+        var j = 0;
+        var k = 0;
+
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[k++] = left[i++];
+                j++;
+            }
+        }
+
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package io.teamchallenge.project.bazario.search;
+
+import io.teamchallenge.project.bazario.entity.Category;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Prices of active advertisements as long cents, kept in primitive arrays sorted by (price, id), one per category
+ * plus one for advertisements without category. A price range resolves to ids with two binary searches per array.
+ * Not thread-safe, guarded by the lock of {@link AdvertisementSearchIndex}.
+ */
+final class PriceIndex {
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final SortedPrices[] byCategory = new SortedPrices[CATEGORIES.length + 1];
+
+    PriceIndex() {
+        for (int i = 0; i < byCategory.length; i++) {
+            byCategory[i] = new SortedPrices();
+        }
+    }
+
+    void add(long id, Category category, long cents) {
+        byCategory[slot(category)].add(cents, id);
+    }
+
+    void remove(long id, Category category, long cents) {
+        byCategory[slot(category)].remove(cents, id);
+    }
+
+    void clear() {
+        for (SortedPrices prices : byCategory) {
+            prices.clear();
+        }
+    }
+
+    /**
+     * @param category  category to look in or null for all of them
+     * @param fromCents lower bound inclusive
+     * @param toCents   upper bound inclusive
+     * @return sorted ids of active advertisements with price in the range
+     */
+    long[] findInRange(Category category, long fromCents, long toCents) {
+        if (category != null) {
+            final var ids = byCategory[slot(category)].idsInRange(fromCents, toCents);
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        var result = new long[0];
+        for (SortedPrices prices : byCategory) {
+            final var ids = prices.idsInRange(fromCents, toCents);
+            final var merged = Arrays.copyOf(result, result.length + ids.length);
+            System.arraycopy(ids, 0, merged, result.length, ids.length);
+            result = merged;
+        }
+
+        Arrays.sort(result);
+        return result;
+    }
+
+    static long toCents(BigDecimal price) {
+        return clampToLong(price.movePointRight(2), RoundingMode.HALF_UP);
+    }
+
+    static long lowerBoundCents(BigDecimal minPrice) {
+        return minPrice == null ? Long.MIN_VALUE : clampToLong(minPrice.movePointRight(2), RoundingMode.CEILING);
+    }
+
+    static long upperBoundCents(BigDecimal maxPrice) {
+        return maxPrice == null ? Long.MAX_VALUE : clampToLong(maxPrice.movePointRight(2), RoundingMode.FLOOR);
+    }
+
+    /**
+     * Rounds to whole cents, values beyond the long range become its bounds. They are compared before rounding,
+     * which never expands a huge exponent like {@code 1e1000000} into its digits.
+     */
+    private static long clampToLong(BigDecimal cents, RoundingMode roundingMode) {
+        if (cents.compareTo(MAX_CENTS) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (cents.compareTo(MIN_CENTS) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return cents.setScale(0, roundingMode).longValueExact();
+    }
+
+    private static int slot(Category category) {
+        return category == null ? CATEGORIES.length : category.ordinal();
+    }
+
+    private static final class SortedPrices {
+        private long[] cents = new long[0];
+        private long[] ids = new long[0];
+        private int size;
+
+        void add(long price, long id) {
+            final var position = search(price, id);
+            if (position >= 0) {
+                return;
+            }
+
+            final var insertAt = -position - 1;
+            if (size == cents.length) {
+                final var capacity = Math.max(16, size + (size >> 1));
+                cents = Arrays.copyOf(cents, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+
+            System.arraycopy(cents, insertAt, cents, insertAt + 1, size - insertAt);
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            cents[insertAt] = price;
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(long price, long id) {
+            final var position = search(price, id);
+            if (position < 0) {
+                return;
+            }
+
+            System.arraycopy(cents, position + 1, cents, position, size - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        void clear() {
+            cents = new long[0];
+            ids = new long[0];
+            size = 0;
+        }
+
+        long[] idsInRange(long fromCents, long toCents) {
+            if (fromCents > toCents) {
+                return new long[0];
+            }
+
+            final var from = firstNotLess(fromCents);
+            final var to = firstGreater(toCents);
+
+            return Arrays.copyOfRange(ids, from, Math.max(from, to));
+        }
+
+        private int search(long price, long id) {
+            var low = 0;
+            var high = size - 1;
+
+            while (low <= high) {
+                final var middle = (low + high) >>> 1;
+                final var compare = cents[middle] != price
+                        ? Long.compare(cents[middle], price)
+                        : Long.compare(ids[middle], id);
+
+                if (compare < 0) {
+                    low = middle + 1;
+                } else if (compare > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -(low + 1);
+        }
+
+        private int firstNotLess(long price) {
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (cents[middle] < price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int firstGreater(long price) {
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var middle = (low + high) >>> 1;
+                if (cents[middle] <= price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
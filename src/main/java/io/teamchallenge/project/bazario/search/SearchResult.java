@@ -0,0 +1,9 @@
+package io.teamchallenge.project.bazario.search;
+
+import java.util.List;
+
+/**
+ * One page of advertisement ids in display order and the total number of matches.
+ */
+public record SearchResult(List<Long> ids, long total) {
+}
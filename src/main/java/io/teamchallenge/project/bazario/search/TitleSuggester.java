@@ -0,0 +1,261 @@
+package io.teamchallenge.project.bazario.search;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Title autocomplete over active advertisements.
+ * <p>
+ * Normalized titles are kept in a trie whose children live in sorted parallel arrays. Every node caches the
+ * top completions of its subtree ordered by the number of active advertisements with that title, so a lookup
+ * only walks the prefix. A title change patches the counters on one path and recomputes the cached completions
+ * bottom-up along that path.
+ */
+@Slf4j
+@Component
+public class TitleSuggester {
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+    private static final Comparator<SuggestionDto> BY_COUNT = Comparator.comparingLong(SuggestionDto::count)
+            .reversed()
+            .thenComparing(SuggestionDto::title);
+
+    private final AdvertisementRepository advertisementRepository;
+    private final int maxSize;
+
+    private final Node root = new Node();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Set<Long> changedWhileBuilding = new HashSet<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean building;
+
+    public TitleSuggester(AdvertisementRepository advertisementRepository,
+                          @Value("${app.search.suggest.max_size}") int maxSize) {
+        this.advertisementRepository = advertisementRepository;
+        this.maxSize = maxSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        final var startedAt = System.currentTimeMillis();
+        building = true;
+        var lastId = 0L;
+
+        while (true) {
+            final var batch = advertisementRepository.findSnapshots(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (AdvertisementSnapshot snapshot : batch) {
+                    // only active advertisements have a title, an announced change may have deactivated one
+                    if (!changedWhileBuilding.contains(snapshot.id())) {
+                        put(snapshot);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = batch.get(batch.size() - 1).id();
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedWhileBuilding.clear();
+            building = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("title suggester built: {} active advertisements in {} ms",
+                titles.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    @Order(AdvertisementChangedEvent.INDEX_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                changedWhileBuilding.add(event.advertisementId());
+            }
+
+            final var title = titles.remove(event.advertisementId());
+            if (title != null) {
+                update(title, -1);
+            }
+
+            if (event.current() != null) {
+                put(event.current());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return up to {@code size} titles starting with the prefix, the most listed first
+     */
+    public List<SuggestionDto> suggest(String prefix, int size) {
+        final var key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            var node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+
+            return node == null
+                    ? Collections.emptyList()
+                    : Arrays.asList(node.top).subList(0, Math.min(size, node.top.length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Lower-cases the text and collapses every run of characters other than letters and digits into one space.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        final var result = new StringBuilder(text.length());
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                result.append(result.isEmpty() ? "" : " ").append(term);
+            }
+        }
+        return result.toString();
+    }
+
+    private void put(AdvertisementSnapshot snapshot) {
+        final var title = normalize(snapshot.title());
+        if (snapshot.status() && !title.isEmpty()) {
+            titles.put(snapshot.id(), title);
+            update(title, 1);
+        }
+    }
+
+    private void update(String title, int delta) {
+        final var path = new Node[title.length() + 1];
+        path[0] = root;
+
+        for (int i = 0; i < title.length(); i++) {
+            path[i + 1] = delta > 0
+                    ? path[i].getOrAddChild(title.charAt(i))
+                    : path[i].child(title.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+
+        path[title.length()].count += delta;
+
+        for (int i = title.length(); i >= 0; i--) {
+            final var node = path[i];
+            if (i > 0 && node.count <= 0 && node.keys.length == 0) {
+                path[i - 1].removeChild(title.charAt(i - 1));
+            } else {
+                // every node on the path spells a prefix of the title, which may be a listed title itself
+                node.top = top(node, title.substring(0, i));
+            }
+        }
+    }
+
+    private SuggestionDto[] top(Node node, String title) {
+        final var candidates = new ArrayList<SuggestionDto>();
+        if (node.count > 0) {
+            candidates.add(new SuggestionDto(title, node.count));
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+
+        candidates.sort(BY_COUNT);
+
+        return candidates.subList(0, Math.min(maxSize, candidates.size())).toArray(new SuggestionDto[0]);
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final SuggestionDto[] NO_SUGGESTIONS = new SuggestionDto[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private SuggestionDto[] top = NO_SUGGESTIONS;
+        private int count;
+
+        Node child(char key) {
+            final var index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrAddChild(char key) {
+            final var index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            final var position = -index - 1;
+            final var child = new Node();
+
+            final var newKeys = new char[keys.length + 1];
+            final var newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newKeys[position] = key;
+            newChildren[position] = child;
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char key) {
+            final var index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+
+            final var newKeys = new char[keys.length - 1];
+            final var newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
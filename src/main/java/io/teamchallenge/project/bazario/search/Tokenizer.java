@@ -0,0 +1,38 @@
+package io.teamchallenge.project.bazario.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+public interface Tokenizer {
+
+    /**
+     * Splits text into distinct lower-cased terms, treating everything except letters and digits as a separator.
+     */
+    static Set<String> tokenize(String text) {
+        final var terms = new LinkedHashSet<String>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        final var lowerCased = text.toLowerCase(Locale.ROOT);
+        var start = -1;
+
+        for (int i = 0; i < lowerCased.length(); i++) {
+            if (Character.isLetterOrDigit(lowerCased.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.add(lowerCased.substring(start, i));
+                start = -1;
+            }
+        }
+
+        if (start >= 0) {
+            terms.add(lowerCased.substring(start));
+        }
+
+        return terms;
+    }
+}
@@ -0,0 +1,298 @@
+package io.teamchallenge.project.bazario.search;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant title search. Titles are split into padded word trigrams (as pg_trgm does) and a query is ranked
+ * by trigram similarity {@code shared / (query + title - shared)}.
+ * <p>
+ * Query trigrams are processed from the rarest to the most common one and scanning stops when the per-query time
+ * budget is spent, so a query on a huge index returns the best matches found so far instead of running long.
+ */
+@Slf4j
+@Component
+public class TrigramIndex {
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+
+    private final AdvertisementRepository advertisementRepository;
+    private final double threshold;
+    private final long budgetNanos;
+
+    private final Map<Long, IntPostings> postings = new HashMap<>();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final Set<Long> removedWhileBuilding = new HashSet<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<int[]> counters = ThreadLocal.withInitial(() -> new int[0]);
+
+    private Document[] documents = new Document[1024];
+    private int slotCount;
+    private volatile boolean building;
+    private volatile boolean ready;
+
+    public TrigramIndex(AdvertisementRepository advertisementRepository,
+                        @Value("${app.search.fuzzy.threshold}") double threshold,
+                        @Value("${app.search.fuzzy.budget_ms}") long budgetMillis) {
+        this.advertisementRepository = advertisementRepository;
+        this.threshold = threshold;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        final var startedAt = System.currentTimeMillis();
+        building = true;
+        var lastId = 0L;
+
+        while (true) {
+            final var batch = advertisementRepository.findSnapshots(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (AdvertisementSnapshot snapshot : batch) {
+                    if (!slots.containsKey(snapshot.id()) && !removedWhileBuilding.contains(snapshot.id())) {
+                        slots.put(snapshot.id(), put(snapshot));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = batch.get(batch.size() - 1).id();
+        }
+
+        lock.writeLock().lock();
+        try {
+            removedWhileBuilding.clear();
+            building = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("trigram index built: {} titles, {} trigrams in {} ms",
+                slots.size(), postings.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    @Order(AdvertisementChangedEvent.INDEX_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        index(event.advertisementId(), event.current());
+    }
+
+    /**
+     * Adds, replaces or (with a null snapshot) removes the title of an advertisement.
+     */
+    public void index(Long advertisementId, AdvertisementSnapshot snapshot) {
+        lock.writeLock().lock();
+        try {
+            final var slot = slots.remove(advertisementId);
+            if (slot != null) {
+                remove(slot);
+            }
+
+            if (snapshot != null) {
+                slots.put(snapshot.id(), put(snapshot));
+            } else if (building) {
+                removedWhileBuilding.add(advertisementId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return ids of advertisements whose title is similar to the filter title, best matches first
+     */
+    public SearchResult search(AdvertisementFilter filter, PageRequest pageRequest) {
+        final var queryTrigrams = trigrams(filter.title());
+        if (queryTrigrams.length == 0) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+
+        final var deadline = System.nanoTime() + budgetNanos;
+        final List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            final var counts = counters(slotCount);
+            final var touched = new IntPostings();
+
+            final var lists = Arrays.stream(queryTrigrams)
+                    .mapToObj(postings::get)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingInt(IntPostings::size))
+                    .toList();
+
+            for (IntPostings list : lists) {
+                for (int i = 0; i < list.size(); i++) {
+                    final var slot = list.get(i);
+                    if (counts[slot]++ == 0) {
+                        touched.add(slot);
+                    }
+                }
+
+                if (System.nanoTime() - deadline > 0) {
+                    log.debug("fuzzy search for '{}' stopped by time budget", filter.title());
+                    break;
+                }
+            }
+
+            for (int i = 0; i < touched.size(); i++) {
+                final var slot = touched.get(i);
+                final var shared = counts[slot];
+                counts[slot] = 0;
+
+                final var document = documents[slot];
+                if (document == null || !document.matches(filter)) {
+                    continue;
+                }
+
+                final var similarity = (double) shared / (queryTrigrams.length + document.trigrams().length - shared);
+                if (similarity >= threshold) {
+                    matches.add(new Match(document.id(), similarity));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed()
+                .thenComparingLong(Match::id));
+
+        final var from = (int) Math.min(pageRequest.getOffset(), matches.size());
+        final var to = Math.min(from + pageRequest.getPageSize(), matches.size());
+
+        return new SearchResult(matches.subList(from, to).stream().map(Match::id).toList(), matches.size());
+    }
+
+    /**
+     * Distinct trigrams of the text, every word padded with two spaces in front and one behind.
+     * Each trigram is packed into a long, 21 bits per char.
+     */
+    static long[] trigrams(String text) {
+        final var result = new LinkedHashSet<Long>();
+
+        for (String word : Tokenizer.tokenize(text)) {
+            final var padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(((long) padded.charAt(i) << 42) | ((long) padded.charAt(i + 1) << 21) | padded.charAt(i + 2));
+            }
+        }
+
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private int put(AdvertisementSnapshot snapshot) {
+        final var slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot >= documents.length) {
+            documents = Arrays.copyOf(documents, documents.length * 2);
+        }
+
+        final var document = new Document(snapshot.id(), snapshot.category(), snapshot.status(), snapshot.price(),
+                trigrams(snapshot.title()));
+        documents[slot] = document;
+
+        for (long trigram : document.trigrams()) {
+            postings.computeIfAbsent(trigram, key -> new IntPostings()).add(slot);
+        }
+
+        return slot;
+    }
+
+    private void remove(int slot) {
+        final var document = documents[slot];
+        documents[slot] = null;
+        freeSlots.push(slot);
+
+        for (long trigram : document.trigrams()) {
+            final var list = postings.get(trigram);
+            if (list != null && list.removeValue(slot) && list.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private int[] counters(int size) {
+        var counts = counters.get();
+        if (counts.length < size) {
+            counts = new int[Math.max(size, counts.length * 2)];
+            counters.set(counts);
+        }
+        return counts;
+    }
+
+    private record Document(long id, Category category, boolean status, BigDecimal price, long[] trigrams) {
+        boolean matches(AdvertisementFilter filter) {
+            return (filter.category() == null || filter.category() == category)
+                   && (filter.status() == null || filter.status() == status)
+                   && (filter.minPrice() == null || price != null && price.compareTo(filter.minPrice()) >= 0)
+                   && (filter.maxPrice() == null || price != null && price.compareTo(filter.maxPrice()) <= 0);
+        }
+    }
+
+    private record Match(long id, double similarity) {
+    }
+
+    /**
+     * Unordered growable list of document slots.
+     */
+    private static final class IntPostings {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.BulkItemResultDto;
+
+import java.util.List;
+
+public interface AdvertisementBulkService {
+
+    List<BulkItemResultDto> addAll(List<AdvertisementDto> dtoList, User user);
+}
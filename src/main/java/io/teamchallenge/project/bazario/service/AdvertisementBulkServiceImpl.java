@@ -0,0 +1,147 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.BulkItemResultDto;
+import jakarta.transaction.Transactional;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates many advertisements without pictures at once.
+ * <p>
+ * Every item is validated first, then ids for all valid items are taken from {@code adv_seq} in one query and the
+ * rows are written with JDBC batch inserts in a single transaction. Invalid items are reported and skipped.
+ */
+@Slf4j
+@Service
+public class AdvertisementBulkServiceImpl implements AdvertisementBulkService {
+
+    private static final String RESERVE_IDS_QUERY = "select nextval('adv_seq') from generate_series(1, ?)";
+    private static final String INSERT_QUERY = "insert into adv " +
+                                               "(id, title, description, category, price, status, create_date, " +
+                                               "version, views, user_id) " +
+                                               "values (?, ?, ?, ?, ?, ?, ?, 0, 0, ?)";
+    private static final String PRICE_REGEX = "^\\d{1,8}(\\.\\d{1,2})?$";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxSize;
+    private final int batchSize;
+
+    public AdvertisementBulkServiceImpl(JdbcTemplate jdbcTemplate,
+                                        Validator validator,
+                                        ApplicationEventPublisher eventPublisher,
+                                        @Value("${app.bulk.max_size}") int maxSize,
+                                        @Value("${app.bulk.batch_size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.maxSize = maxSize;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public List<BulkItemResultDto> addAll(List<AdvertisementDto> dtoList, User user) {
+        if (dtoList == null || dtoList.isEmpty() || dtoList.size() > maxSize) {
+            throw new IllegalOperationException(
+                    String.format("Bulk request must contain from 1 to %d advertisements", maxSize));
+        }
+
+        final var results = new BulkItemResultDto[dtoList.size()];
+        final var valid = new ArrayList<Integer>();
+
+        for (int i = 0; i < dtoList.size(); i++) {
+            final var errors = validate(dtoList.get(i));
+            if (errors.isEmpty()) {
+                valid.add(i);
+            } else {
+                results[i] = BulkItemResultDto.rejected(i, errors);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            final var ids = jdbcTemplate.queryForList(RESERVE_IDS_QUERY, Long.class, valid.size());
+            final var createDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+            final var snapshots = new ArrayList<AdvertisementSnapshot>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                final var dto = dtoList.get(valid.get(i));
+                snapshots.add(new AdvertisementSnapshot(ids.get(i), dto.getTitle().trim(),
+                        dto.getDescription().trim(), getCategory(dto.getCategory()),
+                        new BigDecimal(dto.getPrice().trim()), Boolean.TRUE.equals(dto.getStatus()), createDate,
+                        user.getId()));
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_QUERY, snapshots, batchSize, (ps, snapshot) -> {
+                ps.setLong(1, snapshot.id());
+                ps.setString(2, snapshot.title());
+                ps.setString(3, snapshot.description());
+                ps.setString(4, snapshot.category() == null ? null : snapshot.category().name());
+                ps.setBigDecimal(5, snapshot.price());
+                ps.setBoolean(6, snapshot.status());
+                ps.setTimestamp(7, Timestamp.valueOf(snapshot.createDate()));
+                ps.setLong(8, snapshot.userId());
+            });
+
+            for (int i = 0; i < valid.size(); i++) {
+                results[valid.get(i)] = BulkItemResultDto.created(valid.get(i), snapshots.get(i).id());
+                eventPublisher.publishEvent(AdvertisementChangedEvent.created(snapshots.get(i)));
+            }
+
+            log.debug("created {} advertisements in bulk", valid.size());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private List<String> validate(AdvertisementDto dto) {
+        if (dto == null) {
+            return List.of("advertisement is missing");
+        }
+
+        final var errors = new ArrayList<String>();
+        validator.validate(dto)
+                .forEach(violation -> errors.add(violation.getPropertyPath() + ": " + violation.getMessage()));
+
+        if (dto.getPrice() != null && !dto.getPrice().isBlank() && !dto.getPrice().trim().matches(PRICE_REGEX)) {
+            errors.add("price: must be a number with up to 8 digits and 2 decimals");
+        }
+
+        if (dto.getCategory() != null && getCategory(dto.getCategory()) == null) {
+            errors.add("category: unknown category " + dto.getCategory());
+        }
+
+        return errors;
+    }
+
+    private static Category getCategory(String category) {
+        if (category == null) {
+            return null;
+        }
+
+        try {
+            return Category.valueOf(category.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
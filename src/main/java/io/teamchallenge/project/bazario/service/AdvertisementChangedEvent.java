@@ -0,0 +1,34 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import org.springframework.core.Ordered;
+
+/**
+ * Published by {@link AdvertisementServiceImpl} whenever an advertisement is created, changed or removed.
+ * {@code previous} is null for a new advertisement, {@code current} is null for a deleted one.
+ */
+public record AdvertisementChangedEvent(Long advertisementId,
+                                        AdvertisementSnapshot previous,
+                                        AdvertisementSnapshot current) {
+
+    /**
+     * Order of the listeners maintaining in-memory indexes, they must see a change before the listing caches do.
+     */
+    public static final int INDEX_ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    public static AdvertisementChangedEvent created(AdvertisementSnapshot current) {
+        return new AdvertisementChangedEvent(current.id(), null, current);
+    }
+
+    public static AdvertisementChangedEvent updated(AdvertisementSnapshot previous, AdvertisementSnapshot current) {
+        return new AdvertisementChangedEvent(current.id(), previous, current);
+    }
+
+    public static AdvertisementChangedEvent deleted(AdvertisementSnapshot previous) {
+        return new AdvertisementChangedEvent(previous.id(), previous, null);
+    }
+
+    public boolean isDeleted() {
+        return current == null;
+    }
+}
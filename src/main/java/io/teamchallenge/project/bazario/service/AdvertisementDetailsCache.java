@@ -0,0 +1,75 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.entity.AdvertisementDetails;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache of {@link AdvertisementDetails} by advertisement id, loaded with two flat queries instead of
+ * the entity graph. Visibility rules are applied by the callers, the cache holds every advertisement as is.
+ */
+@Component
+public class AdvertisementDetailsCache {
+
+    private final AdvertisementRepository advertisementRepository;
+    private final AdvPictureRepository advPictureRepository;
+    private final BoundedCache<Long, AdvertisementDetails> cache;
+
+    public AdvertisementDetailsCache(AdvertisementRepository advertisementRepository,
+                                     AdvPictureRepository advPictureRepository,
+                                     @Value("${app.adv_cache.max_size}") int maxSize,
+                                     @Value("${app.adv_cache.ttl_s}") long ttlSeconds,
+                                     MeterRegistry meterRegistry) {
+        this.advertisementRepository = advertisementRepository;
+        this.advPictureRepository = advPictureRepository;
+        this.cache = new BoundedCache<>("advertisement", maxSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+    public Optional<AdvertisementDetails> get(Long advertisementId) {
+        return Optional.ofNullable(cache.get(advertisementId, this::load));
+    }
+
+    public void invalidate(Long advertisementId) {
+        cache.invalidate(advertisementId);
+    }
+
+    /**
+     * Drops every advertisement, for changes made behind the application.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Drops the entry before the change is committed, so no load in flight can store the old state ...
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void beforeAdvertisementChangeCommit(AdvertisementChangedEvent event) {
+        cache.invalidate(event.advertisementId());
+    }
+
+    /**
+     * ... and once more after the commit, for loads that started in between and still read the old row.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        cache.invalidate(event.advertisementId());
+    }
+
+    private AdvertisementDetails load(Long advertisementId) {
+        return advertisementRepository.findDetailsById(advertisementId)
+                .map(details -> details.withPictures(
+                        advPictureRepository.findRowsByAdvertisementIds(List.of(advertisementId))))
+                .orElse(null);
+    }
+}
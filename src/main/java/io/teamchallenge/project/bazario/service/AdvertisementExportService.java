@@ -0,0 +1,9 @@
+package io.teamchallenge.project.bazario.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface AdvertisementExportService {
+
+    void exportActive(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,146 @@
+package io.teamchallenge.project.bazario.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.teamchallenge.project.bazario.entity.AdvertisementListItem;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import io.teamchallenge.project.bazario.web.dto.AdvPictureDto;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes active advertisements as newline-delimited JSON.
+ * <p>
+ * Rows are read with plain JDBC from a forward-only cursor, so neither the result set nor the entities end up in
+ * memory: PostgreSQL only streams with a fetch size inside a transaction, hence {@link Transactional}.
+ * Pictures come from the same query, ordered by advertisement, and are grouped while reading.
+ * <p>
+ * Each export holds a connection for as long as the client reads, so at most {@code app.export.max_concurrent}
+ * run at a time and further ones are refused with {@link ServiceBusyException}.
+ */
+@Service
+public class AdvertisementExportServiceImpl implements AdvertisementExportService {
+
+    private static final String EXPORT_QUERY = """
+            select a.id, a.title, a.description, a.category, a.price, a.status, a.create_date, p.id pic_id, p.url, p.thumbnail_url, p.status pic_status
+            from adv a
+            left join adv_pics p on p.adv_id = a.id
+            where a.status = true
+            order by a.id, p.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int flushEvery;
+    private final Semaphore exports;
+
+    public AdvertisementExportServiceImpl(DataSource dataSource,
+                                          ObjectMapper objectMapper,
+                                          @Value("${app.export.fetch_size}") int fetchSize,
+                                          @Value("${app.export.max_concurrent}") int maxConcurrent) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+        this.flushEvery = fetchSize;
+        this.exports = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    @Transactional
+    public void exportActive(OutputStream outputStream) throws IOException {
+        if (!exports.tryAcquire()) {
+            throw new ServiceBusyException("Too many exports in progress");
+        }
+
+        try {
+            write(outputStream);
+        } finally {
+            exports.release();
+        }
+    }
+
+    private void write(OutputStream outputStream) throws IOException {
+        try (var generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            final var writer = new NdjsonWriter(generator);
+            try {
+                jdbcTemplate.query(EXPORT_QUERY, writer);
+                writer.finish();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private class NdjsonWriter implements RowCallbackHandler {
+        private final JsonGenerator generator;
+
+        private AdvertisementListItem current;
+        private List<AdvPictureDto> pictures = new ArrayList<>();
+        private int written;
+
+        NdjsonWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            final var id = rs.getLong("id");
+            if (current == null || current.id() != id) {
+                finish();
+
+                final var category = rs.getString("category");
+                final var createDate = rs.getTimestamp("create_date");
+                current = new AdvertisementListItem(id,
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        category == null ? null : Category.valueOf(category),
+                        rs.getBigDecimal("price"),
+                        rs.getBoolean("status"),
+                        createDate == null ? null : createDate.toLocalDateTime());
+            }
+
+            final var pictureId = rs.getLong("pic_id");
+            if (!rs.wasNull()) {
+                pictures.add(new AdvPictureDto(pictureId, rs.getString("url"), rs.getString("thumbnail_url"),
+                        PictureStatus.valueOf(rs.getString("pic_status"))));
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+
+            try {
+                generator.writeObject(new AdvertisementDto(current, pictures));
+                generator.writeRaw('\n');
+
+                if (++written % flushEvery == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            current = null;
+            pictures = new ArrayList<>();
+        }
+    }
+}
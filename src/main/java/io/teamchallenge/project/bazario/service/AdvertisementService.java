@@ -1,31 +1,65 @@
 package io.teamchallenge.project.bazario.service;
 
 import io.teamchallenge.project.bazario.entity.Advertisement;
+import io.teamchallenge.project.bazario.entity.AdvertisementDetails;
 import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementCursor;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import io.teamchallenge.project.bazario.web.dto.FacetsDto;
 import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public interface AdvertisementService {
-    Advertisement add(AdvertisementDto dto, List<MultipartFile> pics, User user);
+    /**
+     * @param async when true and the picture pipeline has room, returns before the pictures are uploaded, they
+     *              stay {@code PENDING} until the background upload finishes
+     */
+    Advertisement add(AdvertisementDto dto, List<MultipartFile> pics, User user, boolean async);
 
-    Advertisement addPictures(Long advertisementId, List<MultipartFile> pics, User user);
+    Advertisement addPictures(Long advertisementId, List<MultipartFile> pics, User user, boolean async);
 
     Advertisement deletePicture(Long advertisementId, Long pictureId, User user);
 
     PagedAdvertisementDto getAllByFilter(AdvertisementFilter filter, PageRequest pageRequest);
 
+    PagedAdvertisementDto getAllByFuzzyTitle(AdvertisementFilter filter, PageRequest pageRequest);
+
     PageRequest getPageRequest(Integer page, Integer itemsPerPage, List<String> sort);
 
-    Advertisement getById(Long advId, User user);
+    PagedAdvertisementDto getAllByCursor(AdvertisementFilter filter, AdvertisementCursor cursor, Integer itemsPerPage);
+
+    AdvertisementCursor getCursor(String cursor, List<String> sort);
+
+    AdvertisementDetails getById(Long advId, User user);
+
+    User getOwner(AdvertisementDetails advertisement);
+
+    /**
+     * @return strong ETag of the advertisement as seen by the user, null when the response can't be validated
+     */
+    String getETag(AdvertisementDetails advertisement, User user);
+
+    /**
+     * @return ETag shared by all listing pages, it changes whenever any advertisement changes
+     */
+    String getListingETag();
 
     Advertisement update(AdvertisementDto dto, User user);
 
     boolean delete(Long advertisementId, User user);
 
     AdvertisementFilter getFilter(String title, String category, Boolean status);
+
+    AdvertisementFilter getFilter(String title, String category, Boolean status,
+                                  BigDecimal minPrice, BigDecimal maxPrice);
+
+    FacetsDto getFacets();
+
+    List<SuggestionDto> getSuggestions(String query, Integer size);
 }
@@ -2,18 +2,29 @@ package io.teamchallenge.project.bazario.service;
 
 import io.teamchallenge.project.bazario.entity.*;
 import io.teamchallenge.project.bazario.exceptions.AdvertisementNotFoundException;
-import io.teamchallenge.project.bazario.helpers.CloudinaryHelper;
+import io.teamchallenge.project.bazario.helpers.PictureUploader;
 import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
 import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
 import io.teamchallenge.project.bazario.repository.CommentRepository;
 import io.teamchallenge.project.bazario.repository.FavouriteRepository;
+import io.teamchallenge.project.bazario.repository.UserRepository;
+import io.teamchallenge.project.bazario.search.AdvertisementFacets;
+import io.teamchallenge.project.bazario.search.AdvertisementSearchIndex;
+import io.teamchallenge.project.bazario.search.SearchResult;
+import io.teamchallenge.project.bazario.search.TitleSuggester;
+import io.teamchallenge.project.bazario.search.TrigramIndex;
+import io.teamchallenge.project.bazario.web.dto.AdvPictureDto;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementCursor;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import io.teamchallenge.project.bazario.web.dto.FacetsDto;
 import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
@@ -25,45 +36,80 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class AdvertisementServiceImpl implements AdvertisementService {
 
-    private final CloudinaryHelper cloudinaryHelper;
+    private final PictureUploader pictureUploader;
+    private final PicturePipeline picturePipeline;
+    private final PictureDeletionWorker pictureDeletionWorker;
     private final AdvertisementRepository advertisementRepository;
     private final AdvPictureRepository advPictureRepository;
     private final FavouriteRepository favouriteRepository;
     private final CommentRepository commentRepository;
-
-    public AdvertisementServiceImpl(CloudinaryHelper cloudinaryHelper,
+    private final AdvertisementSearchIndex searchIndex;
+    private final TrigramIndex trigramIndex;
+    private final TitleSuggester titleSuggester;
+    private final AdvertisementFacets facets;
+    private final ListingCache listingCache;
+    private final AdvertisementDetailsCache detailsCache;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AdvertisementServiceImpl(PictureUploader pictureUploader,
+                                    PicturePipeline picturePipeline,
+                                    PictureDeletionWorker pictureDeletionWorker,
                                     AdvertisementRepository advertisementRepository,
                                     AdvPictureRepository advPictureRepository,
                                     FavouriteRepository favouriteRepository,
-                                    CommentRepository commentRepository) {
-        this.cloudinaryHelper = cloudinaryHelper;
+                                    CommentRepository commentRepository,
+                                    AdvertisementSearchIndex searchIndex,
+                                    TrigramIndex trigramIndex,
+                                    TitleSuggester titleSuggester,
+                                    AdvertisementFacets facets,
+                                    ListingCache listingCache,
+                                    AdvertisementDetailsCache detailsCache,
+                                    UserRepository userRepository,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.pictureUploader = pictureUploader;
+        this.picturePipeline = picturePipeline;
+        this.pictureDeletionWorker = pictureDeletionWorker;
         this.advertisementRepository = advertisementRepository;
         this.advPictureRepository = advPictureRepository;
         this.favouriteRepository = favouriteRepository;
         this.commentRepository = commentRepository;
+        this.searchIndex = searchIndex;
+        this.trigramIndex = trigramIndex;
+        this.titleSuggester = titleSuggester;
+        this.facets = facets;
+        this.listingCache = listingCache;
+        this.detailsCache = detailsCache;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     @Transactional
-    public Advertisement add(@Valid AdvertisementDto dto, List<MultipartFile> pics, User user) {
-        // 1. upload files to external service
+    public Advertisement add(@Valid AdvertisementDto dto, List<MultipartFile> pics, User user, boolean async) {
+        final var files = nonEmpty(pics);
+        final var background = async && !files.isEmpty() && picturePipeline.tryReserve(files.size());
+
+        // 1. upload files to external service, unless the pipeline uploads them after the commit
         final var advPicsList = new ArrayList<AdvPicture>();
 
-        if (pics != null) {
-            for (MultipartFile picFile : pics) {
-                if (picFile.isEmpty()) {
-                    continue;
-                }
-                final var uploadResponse = cloudinaryHelper.uploadFile(picFile);
-                advPicsList.add(new AdvPicture(null, uploadResponse.url(), uploadResponse.publicId(), null));
+        if (background) {
+            files.forEach(file -> advPicsList.add(new AdvPicture(null, null, null, null, null, null, PictureStatus.PENDING, null)));
+        } else {
+            for (PictureUploader.UploadedPicture uploaded : pictureUploader.uploadAll(files)) {
+                advPicsList.add(new AdvPicture(null, uploaded.url(), uploaded.publicId(), uploaded.thumbnailUrl(),
+                        uploaded.thumbnailPublicId(), uploaded.contentHash(), PictureStatus.READY, null));
             }
         }
 
@@ -77,6 +123,8 @@ public class AdvertisementServiceImpl implements AdvertisementService {
                 new BigDecimal(dto.getPrice()),
                 dto.getStatus(),
                 LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+                0L,
+                0L,
                 user
         ));
 
@@ -89,26 +137,39 @@ public class AdvertisementServiceImpl implements AdvertisementService {
             log.debug("picture saved in DB as: {}", savedPicture);
         }
 
+        if (background) {
+            picturePipeline.stage(advPicsList, files);
+        }
+
         // 4. return adv object
         advertisement.setPictures(advPicsList);
 
+        eventPublisher.publishEvent(AdvertisementChangedEvent.created(new AdvertisementSnapshot(advertisement)));
+
         return advertisement;
     }
 
     @Override
     @Transactional
-    public Advertisement addPictures(Long advertisementId, List<MultipartFile> pics, User user) {
+    public Advertisement addPictures(Long advertisementId, List<MultipartFile> pics, User user, boolean async) {
         final var advertisement = advertisementRepository.findByIdAndUser(advertisementId, user)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advertisementId));
 
+        final var files = nonEmpty(pics);
         final var pictures = new ArrayList<AdvPicture>();
-        for (MultipartFile pic : pics) {
-            if (pic.isEmpty()) {
-                continue;
+
+        if (async && !files.isEmpty() && picturePipeline.tryReserve(files.size())) {
+            for (int i = 0; i < files.size(); i++) {
+                pictures.add(advPictureRepository.save(
+                        new AdvPicture(null, null, null, null, null, null, PictureStatus.PENDING, advertisement)));
+            }
+            picturePipeline.stage(pictures, files);
+        } else {
+            for (PictureUploader.UploadedPicture uploaded : pictureUploader.uploadAll(files)) {
+                pictures.add(advPictureRepository.save(new AdvPicture(null, uploaded.url(), uploaded.publicId(),
+                        uploaded.thumbnailUrl(), uploaded.thumbnailPublicId(), uploaded.contentHash(), PictureStatus.READY,
+                        advertisement)));
             }
-            final var uploadResult = cloudinaryHelper.uploadFile(pic);
-            pictures.add(advPictureRepository.save(
-                    new AdvPicture(null, uploadResult.url(), uploadResult.publicId(), advertisement)));
         }
 
         if (advertisement.getPictures() == null) {
@@ -119,6 +180,9 @@ public class AdvertisementServiceImpl implements AdvertisementService {
                             .toList());
         }
 
+        advertisementRepository.incrementVersion(advertisement.getId());
+        publishPicturesChanged(advertisement);
+
         return advertisement;
     }
 
@@ -138,29 +202,30 @@ public class AdvertisementServiceImpl implements AdvertisementService {
                 .orElseThrow(() -> new EntityNotFoundException(
                         String.format("Picture with id %d not found", pictureId)));
 
-        if (advPicture.getExternalToken() != null) {
-            cloudinaryHelper.deleteFile(advPicture.getExternalToken());
-        }
-
         advPictureRepository.delete(advPicture);
         advertisement.getPictures().remove(advPicture);
 
+        // the same content may be used by other pictures, their assets are shared
+        pictureDeletionWorker.deleteAssets(List.of(advPicture));
+
+        advertisementRepository.incrementVersion(advertisement.getId());
+        publishPicturesChanged(advertisement);
+
         return advertisement;
     }
 
     @Override
     public PagedAdvertisementDto getAllByFilter(AdvertisementFilter filter, PageRequest pageRequest) {
-        final var pagedList = advertisementRepository.findAll(getSpecificationByFilter(filter), pageRequest);
+        return listingCache.get(filter, pageRequest, () -> loadAllByFilter(filter, pageRequest));
+    }
 
-        final var dtoList = pagedList.getContent().stream()
-                .map(AdvertisementDto::new)
-                .toList();
+    @Override
+    public PagedAdvertisementDto getAllByFuzzyTitle(AdvertisementFilter filter, PageRequest pageRequest) {
+        if (!trigramIndex.isReady() || filter.title() == null || filter.title().isBlank()) {
+            return getAllByFilter(filter, pageRequest);
+        }
 
-        return new PagedAdvertisementDto(
-                dtoList,
-                pagedList.getNumber(),
-                pagedList.getTotalPages(),
-                pagedList.getSize());
+        return toPagedDto(trigramIndex.search(filter, pageRequest), pageRequest);
     }
 
     @Override
@@ -169,34 +234,66 @@ public class AdvertisementServiceImpl implements AdvertisementService {
             page = 0;
         }
 
-        if (itemsPerPage == null || itemsPerPage < 1) {
-            itemsPerPage = 20;
-        }
-
         final var sort = getSort(sortFields);
 
-        return PageRequest.of(page, itemsPerPage, sort);
+        return PageRequest.of(page, getItemsPerPage(itemsPerPage), sort);
+    }
+
+    @Override
+    public PagedAdvertisementDto getAllByCursor(AdvertisementFilter filter, AdvertisementCursor cursor,
+                                                Integer itemsPerPage) {
+        final var size = getItemsPerPage(itemsPerPage);
+
+        return listingCache.get(filter, cursor, size, () -> loadAllByCursor(filter, cursor, size));
     }
 
     @Override
-    public Advertisement getById(Long advId, User user) {
-        final var advertisement = advertisementRepository.findById(advId)
+    public AdvertisementCursor getCursor(String cursor, List<String> sortFields) {
+        return cursor == null || cursor.isBlank()
+                ? AdvertisementCursor.first(sortFields)
+                : AdvertisementCursor.decode(cursor.trim());
+    }
+
+    @Override
+    public AdvertisementDetails getById(Long advId, User user) {
+        final var advertisement = detailsCache.get(advId)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advId));
 
         // according to business logic only owner can see his own inactive advertisements
-        if (!advertisement.isStatus()
-            && (user == null || !Objects.equals(user.getId(), advertisement.getUser().getId()))) {
+        if (!advertisement.status()
+            && (user == null || !Objects.equals(user.getId(), advertisement.userId()))) {
             throw new AdvertisementNotFoundException(advId);
         }
 
         return advertisement;
     }
 
+    @Override
+    public User getOwner(AdvertisementDetails advertisement) {
+        return userRepository.findById(advertisement.userId())
+                .orElseThrow(() -> new AdvertisementNotFoundException(advertisement.id()));
+    }
+
+    @Override
+    public String getETag(AdvertisementDetails advertisement, User user) {
+        // authenticated responses also carry the owner's contacts, which have no version of their own;
+        // weak, the views in the body change without a new version and a revalidated copy may show fewer
+        return user == null
+                ? String.format("W/\"%d-%d\"", advertisement.id(), advertisement.version())
+                : null;
+    }
+
+    @Override
+    public String getListingETag() {
+        return listingCache.getETag();
+    }
+
     @Override
     @Transactional
     public Advertisement update(AdvertisementDto dto, User user) {
         final var advertisement = advertisementRepository.findByIdAndUser(dto.getId(), user)
                 .orElseThrow(() -> new AdvertisementNotFoundException(dto.getId()));
+        final var previous = new AdvertisementSnapshot(advertisement);
 
         if (dto.getTitle() != null && !dto.getTitle().isBlank()) {
             advertisement.setTitle(dto.getTitle().trim());
@@ -214,9 +311,13 @@ public class AdvertisementServiceImpl implements AdvertisementService {
             advertisement.setPrice(new BigDecimal(dto.getPrice().trim()));
         }
 
+        advertisementRepository.incrementVersion(advertisement.getId());
         final var updatedAdvertisement = advertisementRepository.save(advertisement);
         log.debug("updated advertisement: {}", updatedAdvertisement);
 
+        eventPublisher.publishEvent(
+                AdvertisementChangedEvent.updated(previous, new AdvertisementSnapshot(updatedAdvertisement)));
+
         return updatedAdvertisement;
     }
 
@@ -226,14 +327,11 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         final var advertisement = advertisementRepository.findByIdAndUser(advertisementId, user)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advertisementId));
 
-        // 1. delete all associated pictures
+        // 1. delete all associated pictures, their assets are removed from the storage after the commit
+        // pending pictures have no token yet, the pipeline deletes their upload when it finds the row gone
         final var advPictures = advertisement.getPictures();
-        for (AdvPicture advPicture : advPictures) {
-            if (advPicture.getExternalToken() != null) {
-                cloudinaryHelper.deleteFile(advPicture.getExternalToken());
-                advPictureRepository.delete(advPicture);
-            }
-        }
+        advPictureRepository.deleteAllInBatch(advPictures);
+        pictureDeletionWorker.deleteAssets(advPictures);
 
         // 2. remove advertisement from fav lists
         favouriteRepository.deleteAllByAdvertisement(advertisement);
@@ -243,7 +341,13 @@ public class AdvertisementServiceImpl implements AdvertisementService {
 
         // 4. delete adv itself
         log.debug("removing advertisement: {}", advertisement);
-        return advertisementRepository.deleteAdvertisementById(advertisement.getId()) == 1;
+        final var deleted = advertisementRepository.deleteAdvertisementById(advertisement.getId()) == 1;
+
+        if (deleted) {
+            eventPublisher.publishEvent(AdvertisementChangedEvent.deleted(new AdvertisementSnapshot(advertisement)));
+        }
+
+        return deleted;
     }
 
     @Override
@@ -251,6 +355,134 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         return new AdvertisementFilter(title, getCategory(category), status);
     }
 
+    @Override
+    public AdvertisementFilter getFilter(String title, String category, Boolean status,
+                                         BigDecimal minPrice, BigDecimal maxPrice) {
+        return new AdvertisementFilter(title, getCategory(category), status,
+                minPrice == null || minPrice.signum() <= 0 ? null : minPrice,
+                maxPrice);
+    }
+
+    @Override
+    public FacetsDto getFacets() {
+        return facets.getFacets();
+    }
+
+    @Override
+    public List<SuggestionDto> getSuggestions(String query, Integer size) {
+        final var maxSize = titleSuggester.getMaxSize();
+        return titleSuggester.suggest(query, size == null || size <= 0 || size > maxSize ? maxSize : size);
+    }
+
+    private PagedAdvertisementDto loadAllByCursor(AdvertisementFilter filter, AdvertisementCursor cursor, int size) {
+        // one extra row tells whether there is a next page, so no count query is needed
+        final List<AdvertisementListItem> advertisements;
+        if (searchIndex.canServe(filter)) {
+            advertisements = findListingByIdsInOrder(searchIndex.searchAfter(filter, cursor, size + 1));
+        } else {
+            var specs = getSpecificationByFilter(filter);
+            if (!cursor.isFirst()) {
+                specs = specs.and(getSeekSpecification(cursor));
+            }
+
+            advertisements = advertisementRepository.findListing(specs, cursor.getSort(), size + 1);
+        }
+
+        final var hasNext = advertisements.size() > size;
+        final var pageContent = hasNext ? advertisements.subList(0, size) : advertisements;
+
+        final var next = hasNext
+                ? cursor.after(pageContent.get(pageContent.size() - 1)).encode()
+                : null;
+
+        return new PagedAdvertisementDto(
+                toDtoList(pageContent),
+                null,
+                null,
+                size,
+                next);
+    }
+
+    private PagedAdvertisementDto loadAllByFilter(AdvertisementFilter filter, PageRequest pageRequest) {
+        if (searchIndex.canServe(filter)) {
+            return getAllFromSearchIndex(filter, pageRequest);
+        }
+
+        final var pagedList = advertisementRepository.findListing(getSpecificationByFilter(filter), pageRequest);
+
+        final var dtoList = toDtoList(pagedList.getContent());
+
+        return new PagedAdvertisementDto(
+                dtoList,
+                pagedList.getNumber(),
+                pagedList.getTotalPages(),
+                pagedList.getSize());
+    }
+
+    private PagedAdvertisementDto getAllFromSearchIndex(AdvertisementFilter filter, PageRequest pageRequest) {
+        return toPagedDto(searchIndex.search(filter, pageRequest), pageRequest);
+    }
+
+    private PagedAdvertisementDto toPagedDto(SearchResult searchResult, PageRequest pageRequest) {
+        final var dtoList = toDtoList(findListingByIdsInOrder(searchResult.ids()));
+
+        final var pages = (int) ((searchResult.total() + pageRequest.getPageSize() - 1) / pageRequest.getPageSize());
+
+        return new PagedAdvertisementDto(
+                dtoList,
+                pageRequest.getPageNumber(),
+                pages,
+                pageRequest.getPageSize());
+    }
+
+    private void publishPicturesChanged(Advertisement advertisement) {
+        final var snapshot = new AdvertisementSnapshot(advertisement);
+        eventPublisher.publishEvent(AdvertisementChangedEvent.updated(snapshot, snapshot));
+    }
+
+    /**
+     * Loads listing rows of one page and keeps the order chosen by the search index.
+     */
+    private List<AdvertisementListItem> findListingByIdsInOrder(List<Long> ids) {
+        final var position = new HashMap<Long, Integer>();
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+
+        return advertisementRepository.findListingByIds(ids).stream()
+                .sorted(Comparator.comparing(advertisement -> position.get(advertisement.id())))
+                .toList();
+    }
+
+    /**
+     * Maps listing rows to dto, fetching pictures of the whole page with a single query.
+     */
+    private List<AdvertisementDto> toDtoList(List<AdvertisementListItem> items) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final var picturesByAdvertisement = advPictureRepository.findRowsByAdvertisementIds(
+                        items.stream().map(AdvertisementListItem::id).toList()).stream()
+                .collect(Collectors.groupingBy(AdvPictureRow::advertisementId,
+                        Collectors.mapping(AdvPictureDto::new, Collectors.toList())));
+
+        return items.stream()
+                .map(item -> new AdvertisementDto(item,
+                        picturesByAdvertisement.getOrDefault(item.id(), Collections.emptyList())))
+                .toList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Specification<Advertisement> getSeekSpecification(AdvertisementCursor cursor) {
+        return AdvertisementSpecifications.seekAfter(
+                cursor.property(), (Comparable) cursor.keyValue(), cursor.id(), cursor.descending());
+    }
+
+    private int getItemsPerPage(Integer itemsPerPage) {
+        return itemsPerPage == null || itemsPerPage < 1 ? 20 : itemsPerPage;
+    }
+
     private Sort getSort(List<String> sortFields) {
 
         if (sortFields == null || sortFields.size() < 2 || sortFields.size() % 2 != 0) {
@@ -285,6 +517,12 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         return "desc".equals(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
     }
 
+    private static List<MultipartFile> nonEmpty(List<MultipartFile> pics) {
+        return pics == null
+                ? List.of()
+                : pics.stream().filter(pic -> !pic.isEmpty()).toList();
+    }
+
     private Category getCategory(String category) {
         if (category == null) {
             return null;
@@ -314,6 +552,10 @@ public class AdvertisementServiceImpl implements AdvertisementService {
             specs = specs.and(AdvertisementSpecifications.hasStatus(filter.status()));
         }
 
+        if (filter.hasPriceRange()) {
+            specs = specs.and(AdvertisementSpecifications.hasPriceBetween(filter.minPrice(), filter.maxPrice()));
+        }
+
         return specs;
     }
 }
@@ -0,0 +1,131 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts advertisement views in memory and adds them to {@code adv.views} in one JDBC batch every
+ * {@code app.views.flush_interval_ms}, and once more when the application shuts down.
+ * <p>
+ * Counting a view of an advertisement already viewed since the last flush is a map lookup and a {@link LongAdder}
+ * increment, which neither blocks nor allocates.
+ * <p>
+ * The number of views is served as the persisted views, cached apart from the advertisement details, plus the views
+ * not flushed yet. A flush only drops the persisted views of the flushed advertisements, the cached details and
+ * their ETags stay valid.
+ */
+@Slf4j
+@Component
+public class AdvertisementViewCounter {
+
+    private static final String UPDATE_QUERY = "update adv set views = views + ? where id = ?";
+    private static final String SELECT_QUERY = "select views from adv where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BoundedCache<Long, Long> persistedViews;
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public AdvertisementViewCounter(JdbcTemplate jdbcTemplate,
+                                    @Value("${app.adv_cache.max_size}") int maxSize,
+                                    @Value("${app.adv_cache.ttl_s}") long ttlSeconds,
+                                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.persistedViews = new BoundedCache<>("advertisement_views", maxSize, Duration.ofSeconds(ttlSeconds),
+                meterRegistry);
+    }
+
+    public void increment(Long advertisementId) {
+        var counter = counters.get(advertisementId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(advertisementId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return the persisted views plus the views counted since the last flush, a view counted while a flush is
+     * running may be missing until it has finished
+     */
+    public long getViews(Long advertisementId) {
+        final var persisted = persistedViews.get(advertisementId, id -> jdbcTemplate
+                .queryForList(SELECT_QUERY, Long.class, id).stream()
+                .findFirst()
+                .orElse(null));
+        final var pending = counters.get(advertisementId);
+
+        return (persisted == null ? 0 : persisted) + (pending == null ? 0 : pending.sum());
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush_interval_ms}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public synchronized void flush() {
+        final var batch = new ArrayList<Object[]>();
+        for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+            final var delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, entry.getKey()});
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_QUERY, batch);
+        } catch (RuntimeException e) {
+            // keep the views for the next attempt
+            log.warn("failed to flush views of {} advertisements", batch.size(), e);
+            batch.forEach(row -> counters.computeIfAbsent((Long) row[1], id -> new LongAdder()).add((Long) row[0]));
+            return;
+        }
+
+        batch.forEach(row -> persistedViews.invalidate((Long) row[1]));
+        removeFlushed();
+
+        log.debug("flushed views of {} advertisements", batch.size());
+    }
+
+    private void removeFlushed() {
+        // counters left at zero would stay in the map for good, the next view of the advertisement creates a new one
+        for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+            final var counter = entry.getValue();
+            if (counter.sum() == 0 && counters.remove(entry.getKey(), counter)) {
+                // a view counted by a thread that had looked the counter up before it was removed
+                final var late = counter.sumThenReset();
+                if (late > 0) {
+                    counters.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(late);
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        if (event.isDeleted()) {
+            counters.remove(event.advertisementId());
+            persistedViews.invalidate(event.advertisementId());
+        }
+    }
+}
@@ -12,7 +12,17 @@ public interface AuthService {
 
     Optional<LoginResponse> refreshToken(RefreshTokenRequest request);
 
-    boolean logout(User user);
+    /**
+     * Ends the session of the refresh token.
+     *
+     * @return false when the user has no such session
+     */
+    boolean logout(User user, RefreshTokenRequest request);
+
+    /**
+     * Ends every session of the user and revokes the access tokens issued so far.
+     */
+    boolean logoutEverywhere(User user);
 
     void verifyEmail(VerifyEmailRequest request);
 
@@ -1,6 +1,7 @@
 package io.teamchallenge.project.bazario.service;
 
 import io.teamchallenge.project.bazario.config.JwtTokenProvider;
+import io.teamchallenge.project.bazario.entity.RefreshToken;
 import io.teamchallenge.project.bazario.entity.Role;
 import io.teamchallenge.project.bazario.entity.User;
 import io.teamchallenge.project.bazario.entity.UserRole;
@@ -8,6 +9,7 @@ import io.teamchallenge.project.bazario.entity.Verification;
 import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
 import io.teamchallenge.project.bazario.exceptions.UserNotFoundException;
 import io.teamchallenge.project.bazario.helpers.EMailHelper;
+import io.teamchallenge.project.bazario.repository.RefreshTokenRepository;
 import io.teamchallenge.project.bazario.repository.UserRepository;
 import io.teamchallenge.project.bazario.web.dto.*;
 import jakarta.transaction.Transactional;
@@ -20,12 +22,15 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 import java.util.function.Function;
 
 @Slf4j
@@ -35,8 +40,10 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
     private final UserRepository userRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final EMailHelper eMailHelper;
+    private final UserPrincipalCache userPrincipalCache;
 
     private final Long verificationDuration;
     private final Long refreshTokenDurationSeconds;
@@ -44,15 +51,19 @@ public class AuthServiceImpl implements AuthService {
     public AuthServiceImpl(AuthenticationManager authenticationManager,
                            JwtTokenProvider jwtTokenProvider,
                            UserRepository userRepository,
+                           RefreshTokenRepository refreshTokenRepository,
                            PasswordEncoder passwordEncoder,
                            EMailHelper eMailHelper,
+                           UserPrincipalCache userPrincipalCache,
                            @Value("${app.verification_duration_s}") Long verificationDuration,
                            @Value("${app.jwt_refresh_duration_s}") Long refreshTokenDurationSeconds) {
         this.authenticationManager = authenticationManager;
         this.jwtTokenProvider = jwtTokenProvider;
         this.userRepository = userRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
         this.passwordEncoder = passwordEncoder;
         this.eMailHelper = eMailHelper;
+        this.userPrincipalCache = userPrincipalCache;
         this.verificationDuration = verificationDuration;
         this.refreshTokenDurationSeconds = refreshTokenDurationSeconds;
     }
@@ -70,12 +81,10 @@ public class AuthServiceImpl implements AuthService {
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        final var accessToken = jwtTokenProvider.generateToken(user.getEmail());
+        final var accessToken = jwtTokenProvider.generateToken(user);
 
-        final var refreshToken = updateOrCreate(user);
-        user.setRefreshToken(refreshToken);
-
-        return new LoginResponse(accessToken, user.getRefreshToken().getToken());
+        // a session per login, logging in on another device keeps the sessions of the others
+        return new LoginResponse(accessToken, createRefreshToken(user));
     }
 
     @Override
@@ -104,22 +113,23 @@ public class AuthServiceImpl implements AuthService {
     @Override
     @Transactional
     public Optional<LoginResponse> refreshToken(RefreshTokenRequest request) {
-        final var token = request.refreshToken();
-
-        final var user = userRepository.findByRefreshTokenToken(token)
-                .orElseThrow(() -> new RuntimeException("Refresh token not found"));
-
-        if (isExpired(user.getRefreshToken())) {
-            user.setRefreshToken(null);
-        } else {
-            user.getRefreshToken().setExpires(LocalDateTime.now().plusSeconds(refreshTokenDurationSeconds));
+        final var tokenHash = hash(request.refreshToken());
+        final var storedToken = refreshTokenRepository.findWithUserByTokenHash(tokenHash)
+                .orElseThrow(() -> new IllegalOperationException("Refresh token not found"));
+
+        // rotation: the token is used up either way, a stolen copy stops working once the owner refreshed;
+        // of concurrent refreshes with the same token only the one that deletes the row gets new tokens
+        if (refreshTokenRepository.deleteByTokenHash(tokenHash) == 0) {
+            throw new IllegalOperationException("Refresh token not found");
+        }
+        if (storedToken.getExpires().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
         }
 
-        final var accessToken = jwtTokenProvider.generateToken(user.getUsername());
+        final var user = storedToken.getUser();
+        final var accessToken = jwtTokenProvider.generateToken(user);
 
-        return user.getRefreshToken() == null
-                ? Optional.empty()
-                : Optional.of(new LoginResponse(accessToken, user.getRefreshToken().getToken()));
+        return Optional.of(new LoginResponse(accessToken, createRefreshToken(user)));
     }
 
     @Override
@@ -198,6 +208,8 @@ public class AuthServiceImpl implements AuthService {
         // remove token from db
         user.setPasswordVerification(null);
         user.setPassword(passwordEncoder.encode(request.password()));
+        user.rotateSecurityStamp();
+        userPrincipalCache.invalidate(user);
 
         // update password and save
         userRepository.save(user);
@@ -234,10 +246,20 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     @Transactional
-    public boolean logout(User user) {
-        user.setRefreshToken(null);
+    public boolean logout(User user, RefreshTokenRequest request) {
+        // the access token of the session stays valid until it expires, the other sessions are kept
+        return refreshTokenRepository.deleteByTokenHashAndUserId(hash(request.refreshToken()), user.getId()) > 0;
+    }
 
-        return true;
+    @Override
+    @Transactional
+    public boolean logoutEverywhere(User user) {
+        // the access tokens of all devices are revoked together with the stamp, so are their sessions
+        final var deleted = refreshTokenRepository.deleteAllByUserId(user.getId());
+        user.rotateSecurityStamp();
+        userPrincipalCache.invalidate(user);
+
+        return deleted > 0;
     }
 
     private Verification getVerification(long verificationDuration) {
@@ -255,20 +277,28 @@ public class AuthServiceImpl implements AuthService {
                 : userRepository::findByPhone;
     }
 
-    private Verification updateOrCreate(User user) {
-        final var storedToken = user.getRefreshToken();
-        if (storedToken != null) {
-            storedToken.setExpires(LocalDateTime.now().plusSeconds(refreshTokenDurationSeconds));
+    /**
+     * @return the new refresh token, only its hash is stored
+     */
+    private String createRefreshToken(User user) {
+        final var byteToken = new byte[32];
+        new SecureRandom().nextBytes(byteToken);
+        final var token = Base64.getUrlEncoder().withoutPadding().encodeToString(byteToken);
+
+        final var now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(hash(token), user, now.plusSeconds(refreshTokenDurationSeconds),
+                now));
 
-            return storedToken;
-        } else {
-            return new Verification(UUID.randomUUID().toString(),
-                    LocalDateTime.now().plusSeconds(refreshTokenDurationSeconds));
-        }
+        return token;
     }
 
-    private boolean isExpired(Verification refreshToken) {
-        return refreshToken.getExpires().isBefore(LocalDateTime.now());
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
 }
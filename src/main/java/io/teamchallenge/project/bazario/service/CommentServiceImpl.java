@@ -19,29 +19,33 @@ import java.util.Objects;
 @Service
 public class CommentServiceImpl implements CommentService {
     private final AdvertisementRepository advertisementRepository;
+    private final AdvertisementDetailsCache detailsCache;
     private final CommentRepository commentRepository;
 
-    public CommentServiceImpl(AdvertisementRepository advertisementRepository, CommentRepository commentRepository) {
+    public CommentServiceImpl(AdvertisementRepository advertisementRepository,
+                              AdvertisementDetailsCache detailsCache,
+                              CommentRepository commentRepository) {
         this.advertisementRepository = advertisementRepository;
+        this.detailsCache = detailsCache;
         this.commentRepository = commentRepository;
     }
 
     @Override
     @Transactional
     public Comment add(Long advertisementId, CreateCommentRequest dto, User user) {
-        final var advertisement = advertisementRepository.findById(advertisementId)
+        final var advertisement = detailsCache.get(advertisementId)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advertisementId));
 
-        if (Objects.equals(user.getId(), advertisement.getUser().getId())) {
+        if (Objects.equals(user.getId(), advertisement.userId())) {
             throw new IllegalOperationException("You cannot add comments to your own advertisement.");
         }
 
-        if (!advertisement.isStatus()) {
+        if (!advertisement.status()) {
             throw new AdvertisementNotFoundException(advertisementId);
         }
 
-        final var savedComment = commentRepository.save(
-                new Comment(null, dto.description(), LocalDateTime.now(), advertisement, user));
+        final var savedComment = commentRepository.save(new Comment(null, dto.description(), LocalDateTime.now(),
+                advertisementRepository.getReferenceById(advertisementId), user));
 
         log.debug("created comment {}", savedComment);
 
@@ -50,9 +54,9 @@ public class CommentServiceImpl implements CommentService {
 
     @Override
     public List<Comment> getByAdvertisementId(Long advertisementId) {
-        final var advertisement = advertisementRepository.findById(advertisementId)
+        detailsCache.get(advertisementId)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advertisementId));
 
-        return commentRepository.findAllByAdvertisement(advertisement);
+        return commentRepository.findAllByAdvertisementId(advertisementId);
     }
 }
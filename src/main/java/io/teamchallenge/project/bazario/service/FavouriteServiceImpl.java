@@ -18,11 +18,14 @@ public class FavouriteServiceImpl implements FavouriteService {
 
     private final FavouriteRepository favouriteRepository;
     private final AdvertisementRepository advertisementRepository;
+    private final AdvertisementDetailsCache detailsCache;
 
     public FavouriteServiceImpl(FavouriteRepository favouriteRepository,
-                                AdvertisementRepository advertisementRepository) {
+                                AdvertisementRepository advertisementRepository,
+                                AdvertisementDetailsCache detailsCache) {
         this.favouriteRepository = favouriteRepository;
         this.advertisementRepository = advertisementRepository;
+        this.detailsCache = detailsCache;
     }
 
     /**
@@ -48,15 +51,15 @@ public class FavouriteServiceImpl implements FavouriteService {
             return;
         }
 
-        final var advertisement = advertisementRepository.findById(advId)
+        final var advertisement = detailsCache.get(advId)
                 .orElseThrow(() -> new AdvertisementNotFoundException(advId));
 
-        if (!isActiveOrOwner(advertisement, user)) {
+        if (user == null || !advertisement.status() && !Objects.equals(advertisement.userId(), user.getId())) {
             throw new AdvertisementNotFoundException(advId);
         }
 
         favouriteRepository.save(
-                new Favourite(null, advertisement, user, LocalDateTime.now()));
+                new Favourite(null, advertisementRepository.getReferenceById(advId), user, LocalDateTime.now()));
 
     }
 
@@ -0,0 +1,149 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
+import io.teamchallenge.project.bazario.search.Tokenizer;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementCursor;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of listing pages keyed by the normalized filter and page.
+ * <p>
+ * A changed advertisement invalidates only the pages whose filter it matched before or after the change, so
+ * category, status and text queries unrelated to the advertisement keep their entries. Query terms are tokenized
+ * once per page and the advertisement terms once per change, so matching under the cache lock only compares terms.
+ */
+@Component
+public class ListingCache {
+
+    private final BoundedCache<Key, PagedAdvertisementDto> cache;
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public ListingCache(@Value("${app.listing_cache.max_size}") int maxSize,
+                        @Value("${app.listing_cache.ttl_s}") long ttlSeconds,
+                        MeterRegistry meterRegistry) {
+        this.cache = new BoundedCache<>("listing", maxSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+    public PagedAdvertisementDto get(AdvertisementFilter filter, PageRequest pageRequest,
+                                     Supplier<PagedAdvertisementDto> loader) {
+        return cache.get(Key.of(normalize(filter), pageRequest, null), key -> loader.get());
+    }
+
+    public PagedAdvertisementDto get(AdvertisementFilter filter, AdvertisementCursor cursor, int size,
+                                     Supplier<PagedAdvertisementDto> loader) {
+        return cache.get(Key.of(normalize(filter), PageRequest.of(0, size, cursor.getSort()), cursor),
+                key -> loader.get());
+    }
+
+    /**
+     * Validator of all listing pages. It is read before a page is loaded and changes both before and after every
+     * commit of an advertisement, so a page is never tagged with a version older than its content.
+     */
+    public String getETag() {
+        return String.format("\"%s-%d\"", instanceId, version.get());
+    }
+
+    /**
+     * Pages loaded while the change is being committed must not be stored, they may contain the old state.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void beforeAdvertisementChangeCommit(AdvertisementChangedEvent event) {
+        version.incrementAndGet();
+        cache.fence();
+    }
+
+    /**
+     * Runs after the search indexes have applied the change, otherwise a page reloaded in between would be
+     * cached with the old index state.
+     */
+    @Order
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdvertisementChanged(AdvertisementChangedEvent event) {
+        version.incrementAndGet();
+
+        final var previousTerms = terms(event.previous());
+        final var currentTerms = terms(event.current());
+        cache.invalidateIf(key -> couldContain(key, event.previous(), previousTerms)
+                                  || couldContain(key, event.current(), currentTerms));
+    }
+
+    /**
+     * Drops every page, for changes made behind the application.
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static boolean couldContain(Key key, AdvertisementSnapshot advertisement, Set<String> terms) {
+        if (advertisement == null) {
+            return false;
+        }
+
+        final var filter = key.filter();
+
+        if (filter.category() != null && filter.category() != advertisement.category()) {
+            return false;
+        }
+
+        if (filter.status() != null && filter.status() != advertisement.status()) {
+            return false;
+        }
+
+        if (filter.hasPriceRange() && advertisement.price() != null
+            && (filter.minPrice() != null && advertisement.price().compareTo(filter.minPrice()) < 0
+                || filter.maxPrice() != null && advertisement.price().compareTo(filter.maxPrice()) > 0)) {
+            return false;
+        }
+
+        return key.queryTerms().stream()
+                .allMatch(queryTerm -> terms.stream().anyMatch(term -> term.contains(queryTerm)));
+    }
+
+    private static Set<String> terms(AdvertisementSnapshot advertisement) {
+        final var terms = new HashSet<String>();
+        if (advertisement != null) {
+            terms.addAll(Tokenizer.tokenize(advertisement.title()));
+            terms.addAll(Tokenizer.tokenize(advertisement.description()));
+        }
+        return terms;
+    }
+
+    private static AdvertisementFilter normalize(AdvertisementFilter filter) {
+        final var title = filter.title() == null || filter.title().isBlank()
+                ? null
+                : filter.title().trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+
+        return new AdvertisementFilter(title, filter.category(), filter.status(),
+                filter.minPrice() == null ? null : filter.minPrice().stripTrailingZeros(),
+                filter.maxPrice() == null ? null : filter.maxPrice().stripTrailingZeros());
+    }
+
+    /**
+     * {@code queryTerms} are derived from the filter title, they take no part in telling keys apart.
+     */
+    private record Key(AdvertisementFilter filter, PageRequest pageRequest, AdvertisementCursor cursor,
+                       Set<String> queryTerms) {
+
+        static Key of(AdvertisementFilter filter, PageRequest pageRequest, AdvertisementCursor cursor) {
+            return new Key(filter, pageRequest, cursor, Tokenizer.tokenize(filter.title()));
+        }
+    }
+}
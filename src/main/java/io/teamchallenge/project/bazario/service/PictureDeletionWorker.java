@@ -0,0 +1,223 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.entity.AdvPicture;
+import io.teamchallenge.project.bazario.entity.PendingDeletion;
+import io.teamchallenge.project.bazario.helpers.PictureStorage;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.repository.PendingDeletionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Removes picture assets from the storage after the transaction that dropped their last reference has committed.
+ * <p>
+ * Callers only record the assets as {@link PendingDeletion} rows inside their transaction, one batched insert
+ * instead of a remote call per asset. A row becomes due {@code app.pictures.deletion.grace_s} after it was recorded,
+ * so a picture that picked up the asset through content deduplication before, and is committed within that time,
+ * is seen by the re-check. Uploads that reference an asset again call {@link #retain(Collection)} first.
+ * The worker is woken up after the commit and also polls every
+ * {@code app.pictures.deletion.interval_ms}. It locks up to {@code app.pictures.deletion.batch_size} due rows,
+ * drops the rows whose asset was referenced again in the meantime, deletes the rest with one bulk call of the
+ * storage and removes their rows. Assets that could not be deleted are retried with exponential backoff and become
+ * dead letters after {@code app.pictures.deletion.max_attempts}.
+ */
+@Slf4j
+@Component
+public class PictureDeletionWorker {
+
+    private final PendingDeletionRepository pendingDeletionRepository;
+    private final AdvPictureRepository advPictureRepository;
+    private final PictureStorage pictureStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration grace;
+    private final Counter deadLetters;
+
+    private final ExecutorService wakeUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "picture-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+
+    public PictureDeletionWorker(PendingDeletionRepository pendingDeletionRepository,
+                                 AdvPictureRepository advPictureRepository,
+                                 PictureStorage pictureStorage,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.pictures.deletion.batch_size}") int batchSize,
+                                 @Value("${app.pictures.deletion.max_attempts}") int maxAttempts,
+                                 @Value("${app.pictures.deletion.retry_delay_s}") long retryDelaySeconds,
+                                 @Value("${app.pictures.deletion.grace_s}") long graceSeconds) {
+        this.pendingDeletionRepository = pendingDeletionRepository;
+        this.advPictureRepository = advPictureRepository;
+        this.pictureStorage = pictureStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = Duration.ofSeconds(retryDelaySeconds);
+        this.grace = Duration.ofSeconds(graceSeconds);
+        this.deadLetters = Counter.builder("pictures.deletions.dead")
+                .description("picture assets given up on after all attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the assets of removed pictures for deletion. The picture rows must be deleted in the current
+     * transaction before, assets still used by other pictures are kept.
+     */
+    public void deleteAssets(Collection<AdvPicture> pictures) {
+        final var publicIds = new ArrayList<String>();
+        for (AdvPicture picture : pictures) {
+            publicIds.add(picture.getExternalToken());
+            publicIds.add(picture.getThumbnailToken());
+        }
+
+        deleteUnreferenced(publicIds);
+    }
+
+    /**
+     * Schedules the assets no picture references for deletion, null ids are ignored.
+     */
+    public void deleteUnreferenced(Collection<String> publicIds) {
+        final var candidates = new LinkedHashSet<String>();
+        publicIds.stream().filter(Objects::nonNull).forEach(candidates::add);
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        candidates.removeAll(advPictureRepository.findReferencedTokens(candidates));
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        final var due = LocalDateTime.now().plus(grace);
+        pendingDeletionRepository.saveAll(candidates.stream()
+                .map(publicId -> new PendingDeletion(publicId, due))
+                .toList());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Keeps assets that are about to be referenced by a picture that is not committed yet for another grace period.
+     * Returns only after a drain that is deleting one of them right now has finished, assets stored after that
+     * are not deleted before the picture commits. Null ids are ignored.
+     */
+    public void retain(Collection<String> publicIds) {
+        final var retained = publicIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (retained.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status ->
+                pendingDeletionRepository.postpone(retained, LocalDateTime.now().plus(grace)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.pictures.deletion.interval_ms}")
+    public void scheduledDrain() {
+        drain();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // rows left behind are drained by the next start
+        wakeUpExecutor.shutdownNow();
+    }
+
+    /**
+     * Processes due deletions until fewer than a full batch are left.
+     */
+    public synchronized void drain() {
+        try {
+            Integer processed;
+            do {
+                processed = transactionTemplate.execute(status -> drainBatch());
+            } while (processed != null && processed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("failed to process pending picture deletions", e);
+        }
+    }
+
+    private int drainBatch() {
+        final var now = LocalDateTime.now();
+        final var due = pendingDeletionRepository.lockDue(now, batchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        // content deduplication may have picked up an asset again since it was scheduled
+        final var referenced = advPictureRepository.findReferencedTokens(
+                due.stream().map(PendingDeletion::getPublicId).toList());
+        final var toDelete = due.stream()
+                .map(PendingDeletion::getPublicId)
+                .filter(publicId -> !referenced.contains(publicId))
+                .distinct()
+                .toList();
+        final var failed = toDelete.isEmpty() ? Set.<String>of() : pictureStorage.deleteAll(toDelete);
+
+        final var done = new ArrayList<PendingDeletion>();
+        for (PendingDeletion deletion : due) {
+            if (!failed.contains(deletion.getPublicId())) {
+                done.add(deletion);
+                continue;
+            }
+
+            deletion.setAttempts(deletion.getAttempts() + 1);
+            deletion.setLastError("the storage did not delete the asset");
+            if (deletion.getAttempts() >= maxAttempts) {
+                deletion.setDead(true);
+                deadLetters.increment();
+                log.error("giving up on deleting picture asset {} after {} attempts",
+                        deletion.getPublicId(), deletion.getAttempts());
+            } else {
+                deletion.setNextAttemptAt(now.plus(retryDelay.multipliedBy(1L << Math.min(deletion.getAttempts() - 1, 20))));
+            }
+        }
+
+        pendingDeletionRepository.deleteAllInBatch(done);
+        log.debug("deleted {} picture assets, {} failed", done.size(), due.size() - done.size());
+
+        return due.size();
+    }
+
+    private void wakeUp() {
+        if (wakeUpScheduled.compareAndSet(false, true)) {
+            wakeUpExecutor.execute(() -> {
+                wakeUpScheduled.set(false);
+                drain();
+            });
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.teamchallenge.project.bazario.entity.AdvPicture;
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
+import io.teamchallenge.project.bazario.helpers.PictureUploader;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads pictures in the background for requests that asked not to wait for the image host.
+ * <p>
+ * The request stores its pictures as {@code PENDING} rows, copies the bytes to {@code app.pictures.staging_dir}
+ * under the picture id and returns. After the commit the ids are queued, and {@code app.pictures.pipeline.workers}
+ * threads upload them, fill in {@code url} and {@code externalToken} and bump the advertisement version, so
+ * clients polling the advertisement see the change. Pending pictures whose staged file survived a restart are
+ * queued again at startup.
+ * <p>
+ * The queue holds at most {@code app.pictures.pipeline.capacity} pictures. Requests reserve their slots before
+ * staging anything, a request that gets no slots uploads synchronously instead.
+ */
+@Slf4j
+@Component
+public class PicturePipeline {
+
+    private final PictureUploader pictureUploader;
+    private final PictureDeletionWorker pictureDeletionWorker;
+    private final AdvPictureRepository advPictureRepository;
+    private final AdvertisementRepository advertisementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path stagingDir;
+    private final Semaphore capacity;
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private final Timer uploadTimer;
+    private final Counter failures;
+
+    public PicturePipeline(PictureUploader pictureUploader,
+                           PictureDeletionWorker pictureDeletionWorker,
+                           AdvPictureRepository advPictureRepository,
+                           AdvertisementRepository advertisementRepository,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.pictures.staging_dir}") String stagingDir,
+                           @Value("${app.pictures.pipeline.capacity}") int capacity,
+                           @Value("${app.pictures.pipeline.workers}") int workers) throws IOException {
+        this.pictureUploader = pictureUploader;
+        this.pictureDeletionWorker = pictureDeletionWorker;
+        this.advPictureRepository = advPictureRepository;
+        this.advertisementRepository = advertisementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.stagingDir = Files.createDirectories(Path.of(stagingDir));
+        this.capacity = new Semaphore(capacity);
+
+        Gauge.builder("pictures.pipeline.queue", queue, BlockingQueue::size)
+                .description("pictures waiting for the background upload")
+                .register(meterRegistry);
+        this.uploadTimer = Timer.builder("pictures.pipeline.upload")
+                .description("time from taking a picture off the queue until it is stored")
+                .register(meterRegistry);
+        this.failures = Counter.builder("pictures.pipeline.failures")
+                .description("pictures marked as failed")
+                .register(meterRegistry);
+
+        final var threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            final var thread = new Thread(runnable, "picture-pipeline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Reserves queue slots for the current transaction, they are given back if it rolls back.
+     *
+     * @return false when the queue cannot take that many pictures, the caller must upload them itself then
+     */
+    public boolean tryReserve(int count) {
+        if (!capacity.tryAcquire(count)) {
+            return false;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    capacity.release(count);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stages the files of already saved {@code PENDING} pictures, which are queued once the current transaction
+     * commits. Needs a reservation of {@code pictures.size()} slots.
+     */
+    public void stage(List<AdvPicture> pictures, List<MultipartFile> files) {
+        final var ids = pictures.stream().map(AdvPicture::getId).toList();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    queue.addAll(ids);
+                } else {
+                    ids.forEach(PicturePipeline.this::deleteStaged);
+                }
+            }
+        });
+
+        // rejected pictures fail the request while the client is still waiting for the response
+        for (int i = 0; i < files.size(); i++) {
+            pictureUploader.stage(files.get(i), staged(ids.get(i)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        var resumed = 0;
+        for (AdvPicture picture : advPictureRepository.findAllByStatus(PictureStatus.PENDING)) {
+            if (Files.exists(staged(picture.getId())) && capacity.tryAcquire()) {
+                queue.add(picture.getId());
+                resumed++;
+            } else {
+                transactionTemplate.executeWithoutResult(status -> fail(picture.getId()));
+            }
+        }
+
+        if (resumed > 0) {
+            log.info("picture pipeline resumed {} pending pictures", resumed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // unfinished pictures stay pending with their staged files and are resumed by the next start
+        workers.shutdownNow();
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final Long pictureId;
+            try {
+                pictureId = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                uploadTimer.record(() -> process(pictureId));
+            } catch (RuntimeException e) {
+                log.warn("failed to process picture {}", pictureId, e);
+            } finally {
+                capacity.release();
+            }
+        }
+    }
+
+    private void process(Long pictureId) {
+        try {
+            final PictureUploader.UploadedPicture uploaded;
+            try {
+                uploaded = pictureUploader.upload(pictureUploader.inspect(staged(pictureId)));
+            } catch (RuntimeException e) {
+                log.warn("background upload of picture {} failed", pictureId, e);
+                transactionTemplate.executeWithoutResult(status -> fail(pictureId));
+                return;
+            }
+
+            Boolean stored;
+            try {
+                stored = transactionTemplate.execute(status -> complete(pictureId, uploaded));
+            } catch (DataAccessException | TransactionException e) {
+                // deleted after complete() loaded the picture, the flush finds its rows gone
+                log.warn("failed to store picture {}", pictureId, e);
+                stored = false;
+            }
+            if (!Boolean.TRUE.equals(stored)) {
+                // the picture or its advertisement was deleted while the upload was running
+                if (!uploaded.reused()) {
+                    pictureDeletionWorker.deleteUnreferenced(
+                            Arrays.asList(uploaded.publicId(), uploaded.thumbnailPublicId()));
+                }
+            }
+        } finally {
+            deleteStaged(pictureId);
+        }
+    }
+
+    private boolean complete(Long pictureId, PictureUploader.UploadedPicture uploaded) {
+        final var picture = advPictureRepository.findById(pictureId).orElse(null);
+        if (picture == null) {
+            return false;
+        }
+
+        picture.setUrl(uploaded.url());
+        picture.setExternalToken(uploaded.publicId());
+        picture.setThumbnailUrl(uploaded.thumbnailUrl());
+        picture.setThumbnailToken(uploaded.thumbnailPublicId());
+        picture.setContentHash(uploaded.contentHash());
+        picture.setStatus(PictureStatus.READY);
+        publishChanged(picture);
+
+        return true;
+    }
+
+    private void fail(Long pictureId) {
+        advPictureRepository.findById(pictureId).ifPresent(picture -> {
+            failures.increment();
+            picture.setStatus(PictureStatus.FAILED);
+            publishChanged(picture);
+        });
+    }
+
+    private void publishChanged(AdvPicture picture) {
+        final var advertisement = picture.getAdvertisement();
+        advertisementRepository.incrementVersion(advertisement.getId());
+
+        final var snapshot = new AdvertisementSnapshot(advertisement);
+        eventPublisher.publishEvent(AdvertisementChangedEvent.updated(snapshot, snapshot));
+    }
+
+    private void deleteStaged(Long pictureId) {
+        try {
+            Files.deleteIfExists(staged(pictureId));
+        } catch (IOException e) {
+            log.warn("failed to delete staged picture {}", pictureId, e);
+        }
+    }
+
+    private Path staged(Long pictureId) {
+        return stagingDir.resolve(pictureId.toString());
+    }
+}
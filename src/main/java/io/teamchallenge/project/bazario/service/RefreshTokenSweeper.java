@@ -0,0 +1,32 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.teamchallenge.project.bazario.repository.RefreshTokenRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Removes expired refresh tokens, sessions that were never refreshed or logged out of again would stay forever.
+ */
+@Slf4j
+@Component
+public class RefreshTokenSweeper {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    public RefreshTokenSweeper(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${app.refresh_tokens.sweep_interval_ms}")
+    @Transactional
+    public void sweep() {
+        final var deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("removed {} expired refresh tokens", deleted);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.teamchallenge.project.bazario.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
+import io.teamchallenge.project.bazario.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read-through cache of the authenticated principal by username (email or phone), so requests with an access token
+ * do not load the user and its roles every time, and of the security stamps by user id, checked for tokens that
+ * carry the principal themselves. The principal is an immutable {@link AuthenticatedUser} taken from the loaded
+ * {@link User}, requests never share an entity. Services changing a user call {@link #invalidate(User)}, the short
+ * time-to-live bounds the staleness of any change made elsewhere.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final BoundedCache<String, AuthenticatedUser> cache;
+    private final BoundedCache<Long, String> securityStamps;
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              @Value("${app.principal_cache.max_size}") int maxSize,
+                              @Value("${app.principal_cache.ttl_s}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.cache = new BoundedCache<>("principal", maxSize, Duration.ofSeconds(ttlSeconds), meterRegistry);
+        this.securityStamps = new BoundedCache<>("security_stamp", maxSize, Duration.ofSeconds(ttlSeconds),
+                meterRegistry);
+    }
+
+    public Optional<AuthenticatedUser> get(String username) {
+        return Optional.ofNullable(cache.get(username, this::load));
+    }
+
+    /**
+     * @return true when the user still exists and its security stamp is {@code securityStamp}
+     */
+    public boolean isCurrent(Long userId, String securityStamp) {
+        return securityStamp != null && securityStamp.equals(securityStamps.get(userId,
+                id -> userRepository.findSecurityStampById(id).orElse(null)));
+    }
+
+    /**
+     * Drops the user right away and once more after the current transaction commits, for loads that started in
+     * between and still read the old row.
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            invalidate(cache, username);
+        }
+    }
+
+    /**
+     * Drops the user under each name it can be looked up by, and its security stamp.
+     */
+    public void invalidate(User user) {
+        invalidate(user.getEmail());
+        invalidate(user.getPhone());
+        if (user.getId() != null) {
+            invalidate(securityStamps, user.getId());
+        }
+    }
+
+    private static <K> void invalidate(BoundedCache<K, ?> cache, K key) {
+        cache.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(key);
+                }
+            });
+        }
+    }
+
+    private AuthenticatedUser load(String username) {
+        return (username.contains("@")
+                ? userRepository.findByEmail(username)
+                : userRepository.findByPhone(username))
+                .map(AuthenticatedUser::of)
+                .orElse(null);
+    }
+}
@@ -1,12 +1,18 @@
 package io.teamchallenge.project.bazario.service;
 
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.entity.User;
 import io.teamchallenge.project.bazario.web.dto.UpdateUserRequest;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.util.Optional;
 
-public interface UserService extends UserDetailsService {
+/**
+ * Also the {@link UserDetailsPasswordService} of the authentication provider, which stores the password hashed
+ * again when the cost of its hash is below the current one after a successful login.
+ */
+public interface UserService extends UserDetailsService, UserDetailsPasswordService {
     Optional<User> findByEmail(String email);
 
     Optional<User> findByPhone(String phone);
@@ -16,4 +22,10 @@ public interface UserService extends UserDetailsService {
     User save(User user);
 
     void delete(User user);
+
+    /**
+     * @return a lazy reference to the user behind the principal, loaded on first access to more than its id,
+     * or null for anonymous requests
+     */
+    User getReference(AuthenticatedUser principal);
 }
@@ -1,5 +1,6 @@
 package io.teamchallenge.project.bazario.service;
 
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.entity.User;
 import io.teamchallenge.project.bazario.repository.UserRepository;
 import io.teamchallenge.project.bazario.web.dto.UpdateUserRequest;
@@ -14,9 +15,11 @@ import java.util.function.Predicate;
 @Service
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, UserPrincipalCache userPrincipalCache) {
         this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     @Override
@@ -30,6 +33,16 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        final var user = (User) userDetails;
+        user.setPassword(newPassword);
+        userPrincipalCache.invalidate(user);
+
+        return userRepository.save(user);
+    }
+
     @Override
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
@@ -49,15 +62,24 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void delete(User user) {
+        userPrincipalCache.invalidate(user);
         userRepository.delete(user);
     }
 
+    @Override
+    public User getReference(AuthenticatedUser principal) {
+        return principal == null ? null : userRepository.getReferenceById(principal.id());
+    }
+
     @Transactional
     @Override
     public User updateUser(User user, UpdateUserRequest updateRequest) {
 
         Predicate<String> isValid = str -> str != null && !str.isBlank();
 
+        // the old email and phone stop naming this user
+        userPrincipalCache.invalidate(user);
+
         if (isValid.test(updateRequest.firstName())) {
             user.setFirstName(updateRequest.firstName());
         }
@@ -66,14 +88,17 @@ public class UserServiceImpl implements UserService {
             user.setLastName(updateRequest.lastName());
         }
 
-        if (isValid.test(updateRequest.email())) {
+        if (isValid.test(updateRequest.email()) && !updateRequest.email().equals(user.getEmail())) {
             user.setEmail(updateRequest.email());
+            // access tokens name the user by the old email
+            user.rotateSecurityStamp();
         }
 
         if (isValid.test(updateRequest.phone())) {
             user.setPhone(updateRequest.phone());
         }
 
+        userPrincipalCache.invalidate(user);
         return userRepository.save(user);
     }
 }
@@ -1,18 +1,36 @@
 package io.teamchallenge.project.bazario.web.controller;
 
-import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.exceptions.AdvertisementNotFoundException;
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.exceptions.InvalidCursorException;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import io.teamchallenge.project.bazario.service.AdvertisementBulkService;
+import io.teamchallenge.project.bazario.service.AdvertisementExportService;
 import io.teamchallenge.project.bazario.service.AdvertisementService;
+import io.teamchallenge.project.bazario.service.AdvertisementViewCounter;
+import io.teamchallenge.project.bazario.service.UserService;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.BulkItemResultDto;
+import io.teamchallenge.project.bazario.web.dto.FacetsDto;
 import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Slf4j
@@ -21,35 +39,62 @@ import java.util.List;
 public class AdvertisementController {
 
     private final AdvertisementService advService;
-
-    public AdvertisementController(AdvertisementService advService) {
+    private final AdvertisementBulkService bulkService;
+    private final AdvertisementExportService exportService;
+    private final AdvertisementViewCounter viewCounter;
+    private final UserService userService;
+
+    public AdvertisementController(AdvertisementService advService,
+                                   AdvertisementBulkService bulkService,
+                                   AdvertisementExportService exportService,
+                                   AdvertisementViewCounter viewCounter,
+                                   UserService userService) {
         this.advService = advService;
+        this.bulkService = bulkService;
+        this.exportService = exportService;
+        this.viewCounter = viewCounter;
+        this.userService = userService;
     }
 
     @PostMapping
     public ResponseEntity<AdvertisementDto> addAdvertisement(
             @RequestParam(value = "pics", required = false) List<MultipartFile> pics,
             @RequestParam("adv") String jsonString,
-            @AuthenticationPrincipal User user) {
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
 
-        final var advertisement = advService.add(new AdvertisementDto(jsonString), pics, user);
+        final var advertisement = advService.add(new AdvertisementDto(jsonString), pics, user, async);
         return ResponseEntity.ok(new AdvertisementDto(advertisement));
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkItemResultDto>> addAdvertisements(
+            @RequestBody List<AdvertisementDto> dtoList,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
+        return ResponseEntity.ok(bulkService.addAll(dtoList, user));
+    }
+
     @PostMapping("/{advId}/pics")
-    public ResponseEntity<AdvertisementDto> addPicturesToAdvertisement(@PathVariable("advId") Long advertisementId,
-                                                                       @RequestParam("pics") List<MultipartFile> pics,
-                                                                       @AuthenticationPrincipal User user) {
+    public ResponseEntity<AdvertisementDto> addPicturesToAdvertisement(
+            @PathVariable("advId") Long advertisementId,
+            @RequestParam("pics") List<MultipartFile> pics,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
 
-        final var advertisement = advService.addPictures(advertisementId, pics, user);
+        final var advertisement = advService.addPictures(advertisementId, pics, user, async);
 
         return ResponseEntity.ok(new AdvertisementDto(advertisement));
     }
 
     @DeleteMapping("/{advId}/pics/{pictureId}")
-    public ResponseEntity<AdvertisementDto> deleteAdvertisementPicture(@PathVariable("advId") Long advertisementId,
-                                                                       @PathVariable("pictureId") Long pictureId,
-                                                                       @AuthenticationPrincipal User user) {
+    public ResponseEntity<AdvertisementDto> deleteAdvertisementPicture(
+            @PathVariable("advId") Long advertisementId,
+            @PathVariable("pictureId") Long pictureId,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         final var advertisement = advService.deletePicture(advertisementId, pictureId, user);
 
         return ResponseEntity.ok(new AdvertisementDto(advertisement));
@@ -59,35 +104,95 @@ public class AdvertisementController {
     public ResponseEntity<PagedAdvertisementDto> getAllActiveAdvertisements(
             @RequestParam(name = "title", required = false) String title,
             @RequestParam(name = "category", required = false) String category,
+            @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
             @RequestParam(name = "sort", required = false) List<String> sort,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "ipp", required = false) Integer itemsPerPage) {
+            @RequestParam(name = "ipp", required = false) Integer itemsPerPage,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "mode", required = false) String mode,
+            WebRequest request) {
+
+        // the validator is taken before the page is loaded, so it is never newer than the content
+        final var eTag = advService.getListingETag();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        final var filter = advService.getFilter(title, category, true, minPrice, maxPrice);
+
+        // keyset pagination is opt-in: any "cursor" parameter (empty for the first page) switches to it
+        if (cursor != null) {
+            final var pagedDto = advService.getAllByCursor(filter, advService.getCursor(cursor, sort), itemsPerPage);
+
+            return cacheable(pagedDto);
+        }
 
         final var pageRequest = advService.getPageRequest(page, itemsPerPage, sort);
 
-        final var filter = advService.getFilter(title, category, true);
+        // typo-tolerant title search, results are ranked by similarity instead of the requested sort
+        if ("fuzzy".equals(mode)) {
+            return cacheable(advService.getAllByFuzzyTitle(filter, pageRequest));
+        }
 
         final var pagedDto = advService.getAllByFilter(filter, pageRequest);
 
-        return ResponseEntity.ok(pagedDto);
+        return cacheable(pagedDto);
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<FacetsDto> getFacets() {
+        return ResponseEntity.ok(advService.getFacets());
+    }
+
+    /**
+     * Streams all active advertisements as newline-delimited JSON, one {@link AdvertisementDto} per line.
+     * Authenticated users only.
+     */
+    @GetMapping("/export")
+    public void exportActiveAdvertisements(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        exportService.exportActive(response.getOutputStream());
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> getSuggestions(
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "size", required = false) Integer size) {
+        return ResponseEntity.ok(advService.getSuggestions(query, size));
     }
 
     @GetMapping("/{advId}")
     public ResponseEntity<AdvertisementDto> getAdvertisementById(@PathVariable("advId") Long advId,
-                                                                 @AuthenticationPrincipal User user) {
+                                                                 @AuthenticationPrincipal AuthenticatedUser principal,
+                                                                 WebRequest request) {
+        final var user = userService.getReference(principal);
         final var advertisement = advService.getById(advId, user);
+        // revalidations count too, a client asking again is viewing the advertisement again
+        viewCounter.increment(advId);
+
+        // served from the cached details, the response body is only built when the client's copy is stale
+        final var eTag = advService.getETag(advertisement, user);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
 
         final var advUser = user == null
                 ? null
-                : advertisement.getUser();
+                : advService.getOwner(advertisement);
 
-        return ResponseEntity.ok(new AdvertisementDto(advertisement, advUser));
+        final var dto = new AdvertisementDto(advertisement, viewCounter.getViews(advId), advUser);
+
+        return eTag == null ? ResponseEntity.ok(dto) : cacheable(dto);
     }
 
     @PutMapping("/{advId}")
     public ResponseEntity<AdvertisementDto> updateAdvertisement(@PathVariable("advId") Long advId,
                                                                 @RequestBody AdvertisementDto dto,
-                                                                @AuthenticationPrincipal User user) {
+                                                                @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
 
         dto.setId(advId);
 
@@ -98,13 +203,37 @@ public class AdvertisementController {
 
     @DeleteMapping("/{advId}")
     public ResponseEntity<Void> deleteAdvertisement(@PathVariable("advId") Long advId,
-                                                    @AuthenticationPrincipal User user) {
+                                                    @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
 
         final var result = advService.delete(advId, user);
 
         return ResponseEntity.status(result ? HttpStatus.OK : HttpStatus.NOT_FOUND).build();
     }
 
+    /**
+     * The ETag header is already set by {@link WebRequest#checkNotModified}, clients must revalidate every time.
+     */
+    private static <T> ResponseEntity<T> cacheable(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    @ExceptionHandler({InvalidCursorException.class, IllegalOperationException.class})
+    public ResponseEntity<Void> handleBadRequestException(Exception ex) {
+        log.debug(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Void> handleServiceBusyException(ServiceBusyException ex) {
+        log.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
     @ExceptionHandler({EntityNotFoundException.class, AdvertisementNotFoundException.class})
     public ResponseEntity<Void> handleEntityNotFoundException(Exception ex) {
         log.debug(ex.getMessage());
@@ -1,11 +1,14 @@
 package io.teamchallenge.project.bazario.web.controller;
 
-import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
 import io.teamchallenge.project.bazario.service.AuthService;
+import io.teamchallenge.project.bazario.service.UserService;
 import io.teamchallenge.project.bazario.web.dto.*;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,9 +21,11 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    private final UserService userService;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, UserService userService) {
         this.authService = authService;
+        this.userService = userService;
     }
 
     @PostMapping("/login")
@@ -74,15 +79,50 @@ public class AuthController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@AuthenticationPrincipal AuthenticatedUser principal,
+                                       @Valid @RequestBody RefreshTokenRequest request) {
+        final var user = userService.getReference(principal);
+        final var deleted = authService.logout(user, request);
+
+        return ResponseEntity
+                .status(deleted ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .build();
+    }
+
+    /**
+     * The former logout, it ends the sessions of all devices like {@code POST /auth/logout-all} and answers 400
+     * when there was none.
+     *
+     * @deprecated use {@code POST /auth/logout} to end one session or {@code POST /auth/logout-all}
+     */
+    @Deprecated
     @GetMapping("/logout")
-    public ResponseEntity<Void> logout(@AuthenticationPrincipal User user) {
-        final var deleted = authService.logout(user);
+    public ResponseEntity<Void> logoutEverywhereLegacy(@AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
+        final var deleted = authService.logoutEverywhere(user);
 
         return ResponseEntity
                 .status(deleted ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .build();
     }
 
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(@AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
+        authService.logoutEverywhere(user);
+
+        return ResponseEntity.ok().build();
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Void> handleServiceBusyException(ServiceBusyException ex) {
+        log.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
     @ExceptionHandler({IllegalOperationException.class, MethodArgumentNotValidException.class})
     public ResponseEntity<Void> handleIllegalOperationException(Exception ex) {
         log.debug(ex.getMessage());
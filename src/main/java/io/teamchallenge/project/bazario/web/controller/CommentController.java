@@ -1,9 +1,10 @@
 package io.teamchallenge.project.bazario.web.controller;
 
-import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.exceptions.AdvertisementNotFoundException;
 import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
 import io.teamchallenge.project.bazario.service.CommentService;
+import io.teamchallenge.project.bazario.service.UserService;
 import io.teamchallenge.project.bazario.web.dto.CommentDto;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -21,15 +22,18 @@ import java.util.List;
 public class CommentController {
 
     private final CommentService commentService;
+    private final UserService userService;
 
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, UserService userService) {
         this.commentService = commentService;
+        this.userService = userService;
     }
 
     @PostMapping("/{advId}")
     public ResponseEntity<CommentDto> createComment(@PathVariable(name = "advId") Long advId,
                                                     @Valid @RequestBody CreateCommentRequest dto,
-                                                    @AuthenticationPrincipal User user) {
+                                                    @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
 
         final var comment = commentService.add(advId, dto, user);
 
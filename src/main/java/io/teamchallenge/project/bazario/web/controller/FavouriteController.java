@@ -1,8 +1,9 @@
 package io.teamchallenge.project.bazario.web.controller;
 
-import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.exceptions.AdvertisementNotFoundException;
 import io.teamchallenge.project.bazario.service.FavouriteService;
+import io.teamchallenge.project.bazario.service.UserService;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -18,13 +19,17 @@ import java.util.List;
 public class FavouriteController {
 
     private final FavouriteService favouriteService;
+    private final UserService userService;
 
-    public FavouriteController(FavouriteService favouriteService) {
+    public FavouriteController(FavouriteService favouriteService, UserService userService) {
         this.favouriteService = favouriteService;
+        this.userService = userService;
     }
 
     @GetMapping
-    public ResponseEntity<List<AdvertisementDto>> getAllFavourites(@AuthenticationPrincipal User user) {
+    public ResponseEntity<List<AdvertisementDto>> getAllFavourites(
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         final var advList = favouriteService.getAll(user);
 
 
@@ -32,14 +37,18 @@ public class FavouriteController {
     }
 
     @PostMapping("/{advId}")
-    public ResponseEntity<Void> addFavourite(@PathVariable("advId") Long advId, @AuthenticationPrincipal User user) {
+    public ResponseEntity<Void> addFavourite(@PathVariable("advId") Long advId,
+                                             @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         favouriteService.add(advId, user);
 
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{advId}")
-    public ResponseEntity<Void> deleteFavourite(@PathVariable("advId") Long advId, @AuthenticationPrincipal User user) {
+    public ResponseEntity<Void> deleteFavourite(@PathVariable("advId") Long advId,
+                                                @AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         favouriteService.delete(advId, user);
 
         return ResponseEntity.ok().build();
@@ -0,0 +1,135 @@
+package io.teamchallenge.project.bazario.web.controller;
+
+import io.teamchallenge.project.bazario.helpers.LocalPictureStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the files of {@link LocalPictureStorage}.
+ * <p>
+ * Files never change under their name, so they are cacheable for a year and their hash is a strong ETag. A single
+ * byte range is supported, other range requests get the whole file. On Tomcat the body is handed over with
+ * sendfile and never passes through the JVM heap.
+ */
+@RestController
+@RequestMapping("/pictures")
+@ConditionalOnProperty(name = "app.pictures.storage", havingValue = "local")
+public class PictureController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable()
+            .getHeaderValue();
+
+    private final LocalPictureStorage storage;
+
+    public PictureController(LocalPictureStorage storage) {
+        this.storage = storage;
+    }
+
+    @GetMapping("/{name}")
+    public void getPicture(@PathVariable("name") String name,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        final var path = storage.find(name).orElse(null);
+        if (path == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final var eTag = "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (eTag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final var length = Files.size(path);
+        var start = 0L;
+        var end = length - 1;
+
+        final var range = request.getHeader(HttpHeaders.RANGE);
+        final var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        final var matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(eTag))) {
+            final var first = matcher.group(1);
+            final var last = matcher.group(2);
+            if (first.isEmpty() && !last.isEmpty()) {
+                // suffix range: the last N bytes, all of them when N exceeds the length
+                start = length - position(last, length);
+            } else if (!first.isEmpty()) {
+                start = position(first, length);
+                end = last.isEmpty() ? end : Math.min(end, position(last, length));
+            }
+
+            // only a first position at or past the end is unsatisfiable, a last one is cut to the end
+            if (first.isEmpty() && last.isEmpty() || start > end) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, length));
+        }
+
+        response.setContentType(name.endsWith(".png") ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE);
+        response.setContentLengthLong(end - start + 1);
+
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            // exclusive
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final var out = Channels.newChannel(response.getOutputStream());
+            var position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    /**
+     * @return the byte position or length of a range, capped at the file length, also when it exceeds a long
+     */
+    private static long position(String digits, long length) {
+        try {
+            return Math.min(Long.parseLong(digits), length);
+        } catch (NumberFormatException e) {
+            return length;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package io.teamchallenge.project.bazario.web.controller;
 
-import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.config.AuthenticatedUser;
 import io.teamchallenge.project.bazario.service.UserService;
 import io.teamchallenge.project.bazario.web.dto.UpdateUserRequest;
 import io.teamchallenge.project.bazario.web.dto.UserDto;
@@ -20,18 +20,21 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<UserDto> getUserInfo(@AuthenticationPrincipal User user) {
+    public ResponseEntity<UserDto> getUserInfo(@AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         return ResponseEntity.ok(new UserDto(user));
     }
 
     @GetMapping("/admin")
-    public ResponseEntity<UserDto> getAdminUserInfo(@AuthenticationPrincipal User user) {
+    public ResponseEntity<UserDto> getAdminUserInfo(@AuthenticationPrincipal AuthenticatedUser principal) {
+        final var user = userService.getReference(principal);
         return ResponseEntity.ok(new UserDto(user));
     }
 
     @PutMapping
-    public ResponseEntity<UserDto> updateUserInfo(@AuthenticationPrincipal User user,
+    public ResponseEntity<UserDto> updateUserInfo(@AuthenticationPrincipal AuthenticatedUser principal,
                                                   @Valid @RequestBody UpdateUserRequest updateRequest) {
+        final var user = userService.getReference(principal);
 
         final var updatedUser = userService.updateUser(user, updateRequest);
 
@@ -1,9 +1,18 @@
 package io.teamchallenge.project.bazario.web.dto;
 
 import io.teamchallenge.project.bazario.entity.AdvPicture;
+import io.teamchallenge.project.bazario.entity.AdvPictureRow;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
 
-public record AdvPictureDto(Long id, String url) {
+/**
+ * {@code url} and {@code thumbnailUrl} stay null until {@code status} is {@code READY}, clients poll the advertisement meanwhile.
+ */
+public record AdvPictureDto(Long id, String url, String thumbnailUrl, PictureStatus status) {
     public AdvPictureDto(AdvPicture vo) {
-        this(vo.getId(), vo.getUrl());
+        this(vo.getId(), vo.getUrl(), vo.getThumbnailUrl(), vo.getStatus());
+    }
+
+    public AdvPictureDto(AdvPictureRow row) {
+        this(row.id(), row.url(), row.thumbnailUrl(), row.status());
     }
 }
@@ -0,0 +1,105 @@
+package io.teamchallenge.project.bazario.web.dto;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementListItem;
+import io.teamchallenge.project.bazario.exceptions.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a keyset-paginated listing: the sort key and id of the last advertisement already returned.
+ * Clients get it as an opaque base64 string and send it back untouched to continue the listing.
+ */
+public record AdvertisementCursor(String sortKey, boolean descending, String value, Long id) {
+
+    private static final String PRICE = "price";
+    private static final String DATE = "date";
+    private static final String ID = "id";
+    private static final String SEPARATOR = "|";
+
+    public static AdvertisementCursor first(List<String> sortFields) {
+        if (sortFields == null || sortFields.size() < 2 || sortFields.size() % 2 != 0) {
+            return new AdvertisementCursor(ID, false, null, null);
+        }
+
+        final var sortKey = sortFields.get(0);
+        final var descending = "desc".equals(sortFields.get(1));
+
+        return PRICE.equals(sortKey) || DATE.equals(sortKey)
+                ? new AdvertisementCursor(sortKey, descending, null, null)
+                : new AdvertisementCursor(ID, descending, null, null);
+    }
+
+    public static AdvertisementCursor decode(String encoded) {
+        try {
+            final var decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            final var parts = decoded.split("\\|", -1);
+
+            if (parts.length != 4 || !List.of(PRICE, DATE, ID).contains(parts[0])) {
+                throw new InvalidCursorException(encoded);
+            }
+
+            final var cursor = new AdvertisementCursor(parts[0], "desc".equals(parts[1]), parts[2],
+                    Long.valueOf(parts[3]));
+            cursor.keyValue();
+
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidCursorException(encoded);
+        }
+    }
+
+    public String encode() {
+        final var raw = String.join(SEPARATOR, sortKey, descending ? "desc" : "asc", value, String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public AdvertisementCursor after(AdvertisementListItem advertisement) {
+        final var keyValue = switch (sortKey) {
+            case PRICE -> advertisement.price().toPlainString();
+            case DATE -> advertisement.createDate().toString();
+            default -> String.valueOf(advertisement.id());
+        };
+
+        return new AdvertisementCursor(sortKey, descending, keyValue, advertisement.id());
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * @return entity property the listing is ordered by
+     */
+    public String property() {
+        return switch (sortKey) {
+            case PRICE -> PRICE;
+            case DATE -> "createDate";
+            default -> ID;
+        };
+    }
+
+    /**
+     * @return typed value of the sort key of the last returned advertisement
+     */
+    public Comparable<?> keyValue() {
+        return switch (sortKey) {
+            case PRICE -> new BigDecimal(value);
+            case DATE -> LocalDateTime.parse(value);
+            default -> Long.valueOf(value);
+        };
+    }
+
+    public Sort getSort() {
+        final var direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        return ID.equals(sortKey)
+                ? Sort.by(direction, ID)
+                : Sort.by(direction, property()).and(Sort.by(direction, ID));
+    }
+}
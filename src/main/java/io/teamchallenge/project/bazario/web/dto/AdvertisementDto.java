@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.teamchallenge.project.bazario.entity.Advertisement;
+import io.teamchallenge.project.bazario.entity.AdvertisementDetails;
+import io.teamchallenge.project.bazario.entity.AdvertisementListItem;
 import io.teamchallenge.project.bazario.entity.User;
 import io.teamchallenge.project.bazario.exceptions.AppException;
 import jakarta.validation.constraints.NotBlank;
@@ -43,6 +45,9 @@ public class AdvertisementDto {
 
     private String createDate;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long views;
+
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private UserDto user;
 
@@ -54,6 +59,7 @@ public class AdvertisementDto {
         this.price = vo.getPrice().toString();
         this.status = vo.isStatus();
         this.createDate = vo.getCreateDate().toString();
+        this.views = vo.getViews();
 
         if (vo.getPictures() != null) {
             this.pics = vo.getPictures().stream()
@@ -62,6 +68,35 @@ public class AdvertisementDto {
         }
     }
 
+    public AdvertisementDto(AdvertisementListItem item, List<AdvPictureDto> pics) {
+        this.id = item.id();
+        this.title = item.title();
+        this.description = item.description();
+        this.category = item.category() == null ? null : item.category().name();
+        this.price = item.price().toString();
+        this.status = item.status();
+        this.createDate = item.createDate().toString();
+        this.pics = pics;
+    }
+
+    public AdvertisementDto(AdvertisementDetails details, long views, User user) {
+        this.id = details.id();
+        this.title = details.title();
+        this.description = details.description();
+        this.category = details.category() == null ? null : details.category().name();
+        this.price = details.price().toString();
+        this.status = details.status();
+        this.createDate = details.createDate().toString();
+        this.views = views;
+        this.pics = details.pictures().stream()
+                .map(AdvPictureDto::new)
+                .toList();
+
+        if (user != null) {
+            this.user = new UserDto(user);
+        }
+    }
+
     public AdvertisementDto(Long id, String title, String description, String category, String price, Boolean status) {
         this.id = id;
         this.title = title;
@@ -2,5 +2,16 @@ package io.teamchallenge.project.bazario.web.dto;
 
 import io.teamchallenge.project.bazario.entity.Category;
 
-public record AdvertisementFilter(String title, Category category, Boolean status) {
+import java.math.BigDecimal;
+
+public record AdvertisementFilter(String title, Category category, Boolean status,
+                                  BigDecimal minPrice, BigDecimal maxPrice) {
+
+    public AdvertisementFilter(String title, Category category, Boolean status) {
+        this(title, category, status, null, null);
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
 }
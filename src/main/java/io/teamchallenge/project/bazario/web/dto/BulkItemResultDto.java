@@ -0,0 +1,20 @@
+package io.teamchallenge.project.bazario.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Outcome of one item of a bulk request: the id of the created advertisement or the reasons it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record BulkItemResultDto(int index, Long id, List<String> errors) {
+
+    public static BulkItemResultDto created(int index, Long id) {
+        return new BulkItemResultDto(index, id, List.of());
+    }
+
+    public static BulkItemResultDto rejected(int index, List<String> errors) {
+        return new BulkItemResultDto(index, null, errors);
+    }
+}
@@ -0,0 +1,7 @@
+package io.teamchallenge.project.bazario.web.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record FacetsDto(Map<String, Long> categories, List<PriceBucketDto> prices) {
+}
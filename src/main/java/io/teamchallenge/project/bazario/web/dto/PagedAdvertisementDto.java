@@ -1,9 +1,16 @@
 package io.teamchallenge.project.bazario.web.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public record PagedAdvertisementDto(List<AdvertisementDto> content,
                                     Integer page,
                                     Integer pages,
-                                    Integer size) {
+                                    Integer size,
+                                    @JsonInclude(JsonInclude.Include.NON_NULL) String next) {
+
+    public PagedAdvertisementDto(List<AdvertisementDto> content, Integer page, Integer pages, Integer size) {
+        this(content, page, pages, size, null);
+    }
 }
@@ -0,0 +1,10 @@
+package io.teamchallenge.project.bazario.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+public record PriceBucketDto(BigDecimal from,
+                             @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal to,
+                             long count) {
+}
@@ -0,0 +1,4 @@
+package io.teamchallenge.project.bazario.web.dto;
+
+public record SuggestionDto(String title, long count) {
+}
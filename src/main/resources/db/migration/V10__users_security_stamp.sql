@@ -0,0 +1,3 @@
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_stamp VARCHAR(32);
+UPDATE users SET security_stamp = md5(random()::text) WHERE security_stamp IS NULL;
+ALTER TABLE users ALTER COLUMN security_stamp SET NOT NULL;
@@ -0,0 +1,22 @@
+CREATE TABLE refresh_tokens
+(
+    token_hash VARCHAR(64)                 NOT NULL,
+    user_id    BIGINT                      NOT NULL,
+    expires    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    created    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_refresh_tokens PRIMARY KEY (token_hash),
+    CONSTRAINT fk_refresh_tokens_on_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires ON refresh_tokens (expires);
+
+-- keep the sessions open today, only the hash of their token is stored from now on
+INSERT INTO refresh_tokens (token_hash, user_id, expires, created)
+SELECT encode(sha256(convert_to(refresh_token, 'UTF8')), 'hex'), id, refresh_token_expires, now()
+FROM users
+WHERE refresh_token IS NOT NULL
+  AND refresh_token_expires IS NOT NULL;
+
+ALTER TABLE users DROP COLUMN IF EXISTS refresh_token;
+ALTER TABLE users DROP COLUMN IF EXISTS refresh_token_expires;
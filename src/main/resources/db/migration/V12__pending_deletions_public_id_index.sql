@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_pending_deletions_public_id ON pending_deletions (public_id);
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS idx_adv_status_price_id ON adv (status, price, id);
+
+CREATE INDEX IF NOT EXISTS idx_adv_status_create_date_id ON adv (status, create_date, id);
@@ -0,0 +1 @@
+ALTER TABLE adv ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
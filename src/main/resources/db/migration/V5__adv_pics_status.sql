@@ -0,0 +1 @@
+ALTER TABLE adv_pics ADD COLUMN IF NOT EXISTS status VARCHAR(10) NOT NULL DEFAULT 'READY';
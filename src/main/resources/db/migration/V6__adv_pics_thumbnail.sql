@@ -0,0 +1,2 @@
+ALTER TABLE adv_pics ADD COLUMN IF NOT EXISTS thumbnail_url VARCHAR(255);
+ALTER TABLE adv_pics ADD COLUMN IF NOT EXISTS thumbnail_token VARCHAR(255);
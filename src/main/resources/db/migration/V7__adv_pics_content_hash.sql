@@ -0,0 +1,3 @@
+ALTER TABLE adv_pics ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+CREATE INDEX IF NOT EXISTS idx_adv_pics_content_hash ON adv_pics (content_hash);
+CREATE INDEX IF NOT EXISTS idx_adv_pics_external_token ON adv_pics (external_token);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_adv_pics_thumbnail_token ON adv_pics (thumbnail_token);
@@ -0,0 +1,14 @@
+CREATE SEQUENCE IF NOT EXISTS pending_deletion_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE pending_deletions
+(
+    id              BIGINT                      NOT NULL,
+    public_id       VARCHAR(255)                NOT NULL,
+    attempts        INTEGER                     NOT NULL,
+    next_attempt_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    dead            BOOLEAN                     NOT NULL,
+    last_error      VARCHAR(1000),
+    CONSTRAINT pk_pending_deletions PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_pending_deletions_dead_next_attempt_at ON pending_deletions (dead, next_attempt_at);
@@ -0,0 +1,82 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.repository.UserRepository;
+import io.teamchallenge.project.bazario.service.AdvertisementBulkService;
+import io.teamchallenge.project.bazario.service.AdvertisementService;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares throughput of creating advertisements one by one with the bulk insert.
+ * Writes to the database, so it only runs on demand: {@code mvn test -Dtest=AdvertisementBulkBenchmark -Dbenchmark=true}
+ */
+@SpringBootTest
+@TestPropertySource(locations = {"file:.env_test_local"})
+@ActiveProfiles("test")
+@Sql("classpath:clean-db.sql")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AdvertisementBulkBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+    private static final int ITEMS_PER_ROUND = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdvertisementService advertisementService;
+
+    @Autowired
+    private AdvertisementBulkService bulkService;
+
+    @Test
+    void singleVersusBulk() {
+        final var user = userRepository.findById(createUser()).orElseThrow();
+        final var dtoList = new ArrayList<AdvertisementDto>();
+        for (int i = 0; i < ITEMS_PER_ROUND; i++) {
+            dtoList.add(new AdvertisementDto(null, "Bench " + i, "AdvertisementBulkBenchmark", "GARDEN",
+                    String.valueOf(i % 1000), true));
+        }
+
+        final var single = measure(() -> dtoList.forEach(dto -> advertisementService.add(dto, List.of(), user, false)));
+        final var bulk = measure(() -> bulkService.addAll(dtoList, user));
+
+        System.out.printf("single: %,8.0f advs/s | bulk: %,8.0f advs/s%n", single, bulk);
+    }
+
+    private double measure(Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+
+        final var start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run();
+        }
+        final var seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        return ROUNDS * ITEMS_PER_ROUND / seconds;
+    }
+
+    private long createUser() {
+        final var userId = jdbcTemplate.queryForObject("select nextval('user_seq')", Long.class);
+        jdbcTemplate.update("insert into users (id, first_name, last_name, email, password, phone, verified) " +
+                            "values (?, 'Bench', 'Mark', ?, 'x', ?, true)",
+                userId, "bench_" + userId + "@server.com", String.format("+3809%08d", userId));
+        return userId;
+    }
+}
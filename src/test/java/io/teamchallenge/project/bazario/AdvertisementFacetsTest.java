@@ -0,0 +1,121 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.search.AdvertisementFacets;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.PriceBucketDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdvertisementFacetsTest {
+
+    private final List<AdvertisementSnapshot> rows = new CopyOnWriteArrayList<>();
+    private final AtomicInteger countQueries = new AtomicInteger();
+    private Runnable onFirstCount = () -> {
+    };
+
+    private AdvertisementFacets facets;
+
+    @BeforeEach
+    void setUp() {
+        final var advertisementRepository = mock(AdvertisementRepository.class);
+        when(advertisementRepository.countByStatusTrueAndCategory(any())).thenAnswer(invocation -> {
+            final Category category = invocation.getArgument(0);
+            return count(row -> row.category() == category);
+        });
+        when(advertisementRepository.countByStatusTrueAndPriceGreaterThanEqual(any())).thenAnswer(invocation -> {
+            final BigDecimal from = invocation.getArgument(0);
+            return count(row -> row.price().compareTo(from) >= 0);
+        });
+        when(advertisementRepository.countByStatusTrueAndPriceGreaterThanEqualAndPriceLessThan(any(), any()))
+                .thenAnswer(invocation -> {
+                    final BigDecimal from = invocation.getArgument(0);
+                    final BigDecimal to = invocation.getArgument(1);
+                    return count(row -> row.price().compareTo(from) >= 0 && row.price().compareTo(to) < 0);
+                });
+
+        facets = new AdvertisementFacets(advertisementRepository,
+                List.of(new BigDecimal("100"), new BigDecimal("500")));
+    }
+
+    @Test
+    void seedCountsActiveAdvertisements() {
+        rows.add(snapshot(1, Category.CHILDREN, "10", true));
+        rows.add(snapshot(2, Category.CHILDREN, "100", true));
+        rows.add(snapshot(3, Category.GARDEN, "1000", true));
+        rows.add(snapshot(4, Category.GARDEN, "1000", false));
+        facets.seed();
+
+        assertCounts(Map.of(Category.CHILDREN, 2L, Category.GARDEN, 1L), List.of(1L, 1L, 1L));
+    }
+
+    @Test
+    void changesAnnouncedWhileSeedingAreCountedOnce() {
+        rows.add(snapshot(1, Category.CHILDREN, "10", true));
+
+        // committed right after the first count query read the table, announced before seeding finished
+        onFirstCount = () -> {
+            final var created = snapshot(2, Category.CHILDREN, "200", true);
+            rows.add(created);
+            facets.onAdvertisementChanged(AdvertisementChangedEvent.created(created));
+        };
+        facets.seed();
+
+        assertCounts(Map.of(Category.CHILDREN, 2L), List.of(1L, 1L, 0L));
+    }
+
+    @Test
+    void changesAfterSeedingAreApplied() {
+        final var bike = snapshot(1, Category.CHILDREN, "10", true);
+        final var shovel = snapshot(2, Category.GARDEN, "600", true);
+        rows.add(bike);
+        rows.add(shovel);
+        facets.seed();
+
+        final var repriced = snapshot(1, Category.CHILDREN, "150", true);
+        facets.onAdvertisementChanged(AdvertisementChangedEvent.updated(bike, repriced));
+        facets.onAdvertisementChanged(AdvertisementChangedEvent.updated(shovel,
+                snapshot(2, Category.GARDEN, "600", false)));
+        facets.onAdvertisementChanged(AdvertisementChangedEvent.created(snapshot(3, Category.ANIMALS, "1", true)));
+        facets.onAdvertisementChanged(AdvertisementChangedEvent.deleted(repriced));
+
+        assertCounts(Map.of(Category.ANIMALS, 1L), List.of(1L, 0L, 0L));
+    }
+
+    private long count(Predicate<AdvertisementSnapshot> predicate) {
+        final var count = rows.stream().filter(AdvertisementSnapshot::status).filter(predicate).count();
+        if (countQueries.getAndIncrement() == 0) {
+            onFirstCount.run();
+        }
+        return count;
+    }
+
+    private void assertCounts(Map<Category, Long> categories, List<Long> prices) {
+        final var result = facets.getFacets();
+        for (Category category : Category.values()) {
+            assertEquals(categories.getOrDefault(category, 0L), result.categories().get(category.name()),
+                    category.name());
+        }
+        assertEquals(prices, result.prices().stream().map(PriceBucketDto::count).toList());
+    }
+
+    private static AdvertisementSnapshot snapshot(long id, Category category, String price, boolean status) {
+        return new AdvertisementSnapshot(id, "title " + id, null, category, new BigDecimal(price), status,
+                LocalDateTime.now(), 1L);
+    }
+}
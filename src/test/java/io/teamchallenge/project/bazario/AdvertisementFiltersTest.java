@@ -5,6 +5,7 @@ import io.teamchallenge.project.bazario.entity.Category;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
 import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,7 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -270,6 +272,122 @@ public class AdvertisementFiltersTest {
 
     }
 
+    // test price range filter alone and combined with category and title
+    @Test
+    void priceRangeFilterTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        for (String price : List.of("5.00", "10.00", "15.50", "20.00", "99.99")) {
+            helper.createAdvertisement(new AdvertisementDto(null, "priceRangeFilterTest", "priceRangeFilterTest",
+                    Category.ANIMALS.name(), price, true), tokens.accessToken());
+            helper.createAdvertisement(new AdvertisementDto(null, "priceRangeFilterTest", "priceRangeFilterTest",
+                    Category.CHILDREN.name(), price, true), tokens.accessToken());
+        }
+
+        final var min = new BigDecimal("10");
+        final var max = new BigDecimal("20");
+
+        // bounds are inclusive
+        var advs = helper.getAdvertisementByFilter(new AdvertisementFilter(null, null, null, min, max))
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertEquals(6, advs.content().size());
+        assertTrue(advs.content().stream()
+                .map(adv -> new BigDecimal(adv.getPrice()))
+                .allMatch(price -> price.compareTo(min) >= 0 && price.compareTo(max) <= 0));
+
+        // with category
+        advs = helper.getAdvertisementByFilter(new AdvertisementFilter(null, Category.ANIMALS, null, min, max))
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertEquals(3, advs.content().size());
+        assertTrue(advs.content().stream()
+                .allMatch(adv -> Category.ANIMALS.name().equals(adv.getCategory())));
+
+        // only lower bound with title
+        advs = helper.getAdvertisementByFilter(
+                        new AdvertisementFilter("priceRangeFilterTest", null, null, new BigDecimal("20.00"), null))
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertEquals(4, advs.content().size());
+
+        // empty range
+        advs = helper.getAdvertisementByFilter(new AdvertisementFilter(null, null, null, max, min))
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertTrue(advs.content().isEmpty());
+    }
+
+    // test fuzzy title search tolerates typos and ranks the closest title first
+    @Test
+    void fuzzyTitleFilterTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        helper.createAdvertisement(new AdvertisementDto(null, "Iphone", "fuzzyTitleFilterTest",
+                Category.ELECTRONICS.name(), "100.00", true), tokens.accessToken());
+        helper.createAdvertisement(new AdvertisementDto(null, "Iphone case", "fuzzyTitleFilterTest",
+                Category.ELECTRONICS.name(), "10.00", true), tokens.accessToken());
+        helper.createAdvertisement(new AdvertisementDto(null, "Garden chair", "fuzzyTitleFilterTest",
+                Category.GARDEN.name(), "50.00", true), tokens.accessToken());
+
+        final var fuzzy = List.of(Pair.of("mode", "fuzzy"));
+
+        var advs = helper.getAdvertisementByFilter(new AdvertisementFilter("iphones", null, null), fuzzy)
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertEquals(2, advs.content().size());
+        assertEquals("Iphone", advs.content().get(0).getTitle());
+
+        // the plain search finds nothing for the misspelled title
+        advs = helper.getAdvertisementByFilter(new AdvertisementFilter("iphones", null, null))
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(advs);
+        assertTrue(advs.content().isEmpty());
+    }
+
+    // test title suggestions are prefix matched and ordered by number of active advertisements
+    @Test
+    void suggestTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        for (String title : List.of("Suggesttest bike", "suggesttest  BIKE", "Suggesttest bicycle", "Suggesttest sofa")) {
+            helper.createAdvertisement(getActiveAdvDtoWithTitleAndCategory(title, null), tokens.accessToken());
+        }
+        helper.createAdvertisement(new AdvertisementDto(null, "Suggesttest bicycle", "suggestTest",
+                null, "10.00", false), tokens.accessToken());
+
+        final var suggestions = webTestClient.get()
+                .uri(builder -> builder.path("/adv/suggest")
+                        .queryParam("q", "SuggestTest b")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(SuggestionDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(suggestions);
+        assertEquals(List.of(new SuggestionDto("suggesttest bike", 2), new SuggestionDto("suggesttest bicycle", 1)),
+                suggestions);
+    }
+
     // test sorting by price asc and desc
     @Test
     void sortingByPriceTest() throws JsonProcessingException {
@@ -353,4 +471,53 @@ public class AdvertisementFiltersTest {
     }
 
     //todo: test pagination
+
+    // test keyset (cursor) pagination walks through all advs in sort order without repeats
+    @Test
+    void cursorPaginationTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        for (String price : List.of("50.00", "10.00", "30.00", "10.00", "40.00")) {
+            helper.createAdvertisement(new AdvertisementDto(null, "cursorPaginationTest", "cursorPaginationTest",
+                    Category.GARDEN.name(), price, true), tokens.accessToken());
+        }
+
+        final var received = new ArrayList<AdvertisementDto>();
+        String cursor = "";
+        do {
+            final var currentCursor = cursor;
+            final var advs = webTestClient.get()
+                    .uri(builder -> builder.path("/adv")
+                            .queryParam("sort", "price")
+                            .queryParam("sort", "asc")
+                            .queryParam("ipp", 2)
+                            .queryParam("cursor", currentCursor)
+                            .build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(PagedAdvertisementDto.class)
+                    .returnResult().getResponseBody();
+
+            assertNotNull(advs);
+            assertNull(advs.pages());
+            assertTrue(advs.content().size() <= 2);
+
+            received.addAll(advs.content());
+            cursor = advs.next();
+        } while (cursor != null);
+
+        assertEquals(5, received.size());
+        assertEquals(5, received.stream().map(AdvertisementDto::getId).distinct().count());
+
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(new BigDecimal(received.get(i - 1).getPrice())
+                               .compareTo(new BigDecimal(received.get(i).getPrice())) <= 0);
+        }
+
+        // tampered cursor is rejected
+        webTestClient.get()
+                .uri(builder -> builder.path("/adv").queryParam("cursor", "not-a-cursor").build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
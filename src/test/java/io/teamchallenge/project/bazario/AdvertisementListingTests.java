@@ -0,0 +1,152 @@
+package io.teamchallenge.project.bazario;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = {"file:.env_test_local"})
+@ActiveProfiles("test")
+@Sql("classpath:clean-db.sql")
+class AdvertisementListingTests {
+
+    private static final int ADV_COUNT = 20;
+    private static final int PICS_PER_ADV = 3;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestHelper helper;
+
+    private String userEmail;
+    private String userPhone;
+    private String password;
+
+    @BeforeEach
+    void setup() {
+        final var currentTime = System.currentTimeMillis();
+        userEmail = String.format("user1_%d@server.com", currentTime);
+        userPhone = String.format("+38%010d", currentTime % 10000000000L);
+        password = "111111";
+
+        helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+    }
+
+    // listing page of 20 advs with pictures must not issue a query per adv
+    @Test
+    void listingStatementCountTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(userEmail, userPhone, password);
+
+        for (int i = 0; i < ADV_COUNT; i++) {
+            final var adv = helper.createAdvertisement(new AdvertisementDto(null, "listingStatementCountTest",
+                    "listingStatementCountTest", Category.HOUSEHOLD.name(), "10.00", true), tokens.accessToken());
+
+            for (int j = 0; j < PICS_PER_ADV; j++) {
+                jdbcTemplate.update("insert into adv_pics (id, url, external_token, adv_id) " +
+                                    "values (nextval('adv_pic_seq'), ?, null, ?)",
+                        "http://localhost/pic_" + adv.getId() + "_" + j, adv.getId());
+            }
+        }
+
+        // the page is not full, so it tells the total itself:
+        // one listing query and one batched query for all pictures of the page
+        var statements = listingStatements(ADV_COUNT + 5, ADV_COUNT);
+        assertTrue(statements <= 2, "statements executed: " + statements);
+
+        // a full page needs the count query on top
+        statements = listingStatements(ADV_COUNT / 2, ADV_COUNT / 2);
+        assertTrue(statements <= 3, "statements executed: " + statements);
+    }
+
+    private long listingStatements(int itemsPerPage, int expectedItems) {
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final var advs = webTestClient.get()
+                .uri(builder -> builder.path("/adv")
+                        .queryParam("category", Category.HOUSEHOLD.name())
+                        .queryParam("ipp", itemsPerPage)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PagedAdvertisementDto.class)
+                .returnResult().getResponseBody();
+
+        final var statements = statistics.getPrepareStatementCount();
+
+        assertNotNull(advs);
+        assertEquals(expectedItems, advs.content().size());
+        assertEquals((ADV_COUNT + itemsPerPage - 1) / itemsPerPage, advs.pages());
+        assertTrue(advs.content().stream().allMatch(adv -> adv.getPics().size() == PICS_PER_ADV));
+
+        return statements;
+    }
+
+    // export writes every active adv with its pictures as one json line, for authenticated users only
+    @Test
+    void exportTest() throws Exception {
+        final var tokens = helper.registerUserAndGetTokens(userEmail, userPhone, password);
+
+        for (int i = 0; i < ADV_COUNT; i++) {
+            final var adv = helper.createAdvertisement(new AdvertisementDto(null, "exportTest", "exportTest",
+                    Category.HOUSEHOLD.name(), "10.00", i % 2 == 0), tokens.accessToken());
+
+            for (int j = 0; j < PICS_PER_ADV; j++) {
+                jdbcTemplate.update("insert into adv_pics (id, url, external_token, adv_id) " +
+                                    "values (nextval('adv_pic_seq'), ?, null, ?)",
+                        "http://localhost/pic_" + adv.getId() + "_" + j, adv.getId());
+            }
+        }
+
+        webTestClient.get()
+                .uri("/adv/export")
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        final var body = webTestClient.get()
+                .uri("/adv/export")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(body);
+
+        final var objectMapper = new ObjectMapper();
+        final var advs = new ArrayList<AdvertisementDto>();
+        for (String line : body.split("\n")) {
+            advs.add(objectMapper.readValue(line, AdvertisementDto.class));
+        }
+
+        assertEquals(ADV_COUNT / 2, advs.size());
+        assertTrue(advs.stream().allMatch(AdvertisementDto::getStatus));
+        assertTrue(advs.stream().allMatch(adv -> adv.getPics().size() == PICS_PER_ADV));
+    }
+}
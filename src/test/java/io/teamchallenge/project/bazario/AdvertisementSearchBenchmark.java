@@ -0,0 +1,148 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSpecifications;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.search.AdvertisementSearchIndex;
+import io.teamchallenge.project.bazario.service.AdvertisementService;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares latency of the title search served by {@link AdvertisementSearchIndex} with the former LIKE query.
+ * Seeds the database, so it only runs on demand: {@code mvn test -Dtest=AdvertisementSearchBenchmark -Dbenchmark=true}
+ */
+@SpringBootTest
+@TestPropertySource(locations = {"file:.env_test_local"})
+@ActiveProfiles("test")
+@Sql("classpath:clean-db.sql")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AdvertisementSearchBenchmark {
+
+    private static final int[] SIZES = {100_000, 1_000_000};
+    private static final int INSERT_BATCH_SIZE = 5_000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 30;
+    private static final List<String> QUERIES = List.of("bike", "iphone case", "sofa", "rare");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AdvertisementRepository advertisementRepository;
+
+    @Autowired
+    private AdvertisementService advertisementService;
+
+    @Autowired
+    private AdvertisementSearchIndex searchIndex;
+
+    @Test
+    void likeVersusIndex() {
+        final var userId = createUser();
+        final var random = new Random(42);
+        final var words = vocabulary(random);
+
+        var seeded = 0;
+        for (int size : SIZES) {
+            seed(userId, seeded, size, words, random);
+            seeded = size;
+
+            searchIndex.build();
+
+            System.out.printf("===== %,d advertisements =====%n", size);
+            for (String query : QUERIES) {
+                final var pageRequest = advertisementService.getPageRequest(0, 20, null);
+                final var filter = new AdvertisementFilter(query, null, true);
+
+                final var like = measure(() -> advertisementRepository.findAll(
+                        AdvertisementSpecifications.containsTitle(query)
+                                .and(AdvertisementSpecifications.hasStatus(true)), pageRequest).getTotalPages());
+                final var index = measure(() -> advertisementService.getAllByFilter(filter, pageRequest).pages());
+
+                System.out.printf("%-12s LIKE p50=%6.2f ms p99=%6.2f ms | index p50=%6.2f ms p99=%6.2f ms%n",
+                        query, like[0], like[1], index[0], index[1]);
+            }
+        }
+    }
+
+    private double[] measure(Supplier<Object> call) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            call.get();
+        }
+
+        final var timings = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            final var start = System.nanoTime();
+            call.get();
+            timings[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+
+        Arrays.sort(timings);
+        return new double[]{timings[ITERATIONS / 2], timings[(int) (ITERATIONS * 0.99)]};
+    }
+
+    private long createUser() {
+        final var userId = jdbcTemplate.queryForObject("select nextval('user_seq')", Long.class);
+        jdbcTemplate.update("insert into users (id, first_name, last_name, email, password, phone, verified) " +
+                            "values (?, 'Bench', 'Mark', ?, 'x', ?, true)",
+                userId, "bench_" + userId + "@server.com", String.format("+3809%08d", userId));
+        return userId;
+    }
+
+    private void seed(long userId, int from, int to, List<String> words, Random random) {
+        final var categories = List.of("CHILDREN", "ANIMALS", "CLOTHES", "ELECTRONICS", "HOUSEHOLD", "GARDEN");
+        final var sql = "insert into adv (id, title, description, category, price, status, create_date, user_id) " +
+                        "values (nextval('adv_seq'), ?, ?, ?, ?, ?, ?, ?)";
+
+        for (int start = from; start < to; start += INSERT_BATCH_SIZE) {
+            final var batch = new ArrayList<Object[]>();
+            for (int i = start; i < Math.min(start + INSERT_BATCH_SIZE, to); i++) {
+                batch.add(new Object[]{
+                        sentence(words, random, 4),
+                        sentence(words, random, 12),
+                        categories.get(random.nextInt(categories.size())),
+                        random.nextInt(100_000) / 100.0,
+                        random.nextInt(10) != 0,
+                        Timestamp.valueOf(LocalDateTime.now().minusMinutes(i)),
+                        userId
+                });
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    private static List<String> vocabulary(Random random) {
+        final var words = new ArrayList<>(List.of("bike", "iphone", "case", "sofa", "chair", "table", "dress"));
+        for (int i = 0; i < 5_000; i++) {
+            final var word = new StringBuilder();
+            for (int j = 0; j < 4 + random.nextInt(6); j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static String sentence(List<String> words, Random random, int length) {
+        final var sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sentence.append(i == 0 ? "" : " ").append(words.get(random.nextInt(words.size())));
+        }
+        return sentence.toString();
+    }
+}
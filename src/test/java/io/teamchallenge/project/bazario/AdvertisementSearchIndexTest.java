@@ -0,0 +1,114 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.search.AdvertisementSearchIndex;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdvertisementSearchIndexTest {
+
+    private final List<AdvertisementSnapshot> rows = new ArrayList<>();
+    private AdvertisementSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        final var advertisementRepository = mock(AdvertisementRepository.class);
+        when(advertisementRepository.findSnapshots(anyLong(), any())).thenAnswer(invocation -> {
+            final long lastId = invocation.getArgument(0);
+            final Pageable pageable = invocation.getArgument(1);
+            return rows.stream()
+                    .filter(row -> row.id() > lastId)
+                    .limit(pageable.getPageSize())
+                    .toList();
+        });
+
+        index = new AdvertisementSearchIndex(advertisementRepository, true);
+    }
+
+    @Test
+    void priceBoundsBeyondTheLongRangeAreClamped() {
+        rows.add(snapshot(1, "bike", "10.00"));
+        rows.add(snapshot(2, "car", "99999999.99"));
+        index.build();
+
+        assertEquals(List.of(), ids(new AdvertisementFilter(null, null, true, new BigDecimal("1e30"), null)));
+        assertEquals(List.of(1L, 2L), ids(new AdvertisementFilter(null, null, true, null, new BigDecimal("1e30"))));
+        assertEquals(List.of(1L, 2L), ids(new AdvertisementFilter(null, null, true, new BigDecimal("-1e30"), null)));
+        assertEquals(List.of(), ids(new AdvertisementFilter(null, null, true, null, new BigDecimal("-1e30"))));
+        assertEquals(List.of(1L, 2L), ids(new AdvertisementFilter(null, null, true,
+                new BigDecimal("-1e1000000"), new BigDecimal("1e1000000"))));
+    }
+
+    @Test
+    void changesAreSearchable() {
+        rows.add(snapshot(1, "red bike", "10.00"));
+        index.build();
+
+        index.onAdvertisementChanged(AdvertisementChangedEvent.created(snapshot(2, "blue bike", "20.00")));
+        index.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(1, "red bike", "10.00"),
+                snapshot(1, "red car", "10.00")));
+
+        assertEquals(List.of(2L), ids(new AdvertisementFilter("bike", null, true)));
+        assertEquals(List.of(1L), ids(new AdvertisementFilter("car", null, true)));
+        assertEquals(List.of(2L), ids(new AdvertisementFilter(null, null, true,
+                new BigDecimal("15"), new BigDecimal("25"))));
+    }
+
+    @Test
+    void queryTermsMatchAnyPartOfIndexedTerms() {
+        rows.add(snapshot(1, "Mountain bike", "10.00"));
+        rows.add(snapshot(2, "Bicycle helmet", "20.00"));
+        rows.add(snapshot(3, "Motorbike", "30.00"));
+        index.build();
+
+        assertEquals(List.of(1L, 3L), ids(new AdvertisementFilter("bike", null, true)));
+        assertEquals(List.of(1L, 3L), ids(new AdvertisementFilter("IKE", null, true)));
+        assertEquals(List.of(1L, 2L, 3L), ids(new AdvertisementFilter("b", null, true)));
+        assertEquals(List.of(2L), ids(new AdvertisementFilter("icyc", null, true)));
+        assertEquals(List.of(3L), ids(new AdvertisementFilter("torbik", null, true)));
+        assertEquals(List.of(1L), ids(new AdvertisementFilter("bike mount", null, true)));
+        assertEquals(List.of(), ids(new AdvertisementFilter("bikes", null, true)));
+        assertEquals(List.of(), ids(new AdvertisementFilter("bike helmet", null, true)));
+    }
+
+    @Test
+    void removedTermsNoLongerMatch() {
+        rows.add(snapshot(1, "red bike", "10.00"));
+        rows.add(snapshot(2, "red scooter", "20.00"));
+        index.build();
+
+        index.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(1, "red bike", "10.00")));
+        index.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(2, "red scooter", "20.00"),
+                snapshot(2, "blue scooter", "20.00")));
+
+        assertEquals(List.of(), ids(new AdvertisementFilter("bik", null, true)));
+        assertEquals(List.of(), ids(new AdvertisementFilter("red", null, true)));
+        assertEquals(List.of(2L), ids(new AdvertisementFilter("lu", null, true)));
+    }
+
+    private List<Long> ids(AdvertisementFilter filter) {
+        return index.search(filter, PageRequest.of(0, 100)).ids();
+    }
+
+    static AdvertisementSnapshot snapshot(long id, String title, String price) {
+        return new AdvertisementSnapshot(id, title, null, Category.values()[0], new BigDecimal(price), true,
+                LocalDateTime.now(), 1L);
+    }
+}
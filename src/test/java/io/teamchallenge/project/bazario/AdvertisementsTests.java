@@ -1,11 +1,15 @@
 package io.teamchallenge.project.bazario;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
+import io.teamchallenge.project.bazario.service.AdvertisementViewCounter;
 import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import io.teamchallenge.project.bazario.web.dto.BulkItemResultDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
@@ -24,6 +28,9 @@ class AdvertisementsTests {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private AdvertisementViewCounter viewCounter;
+
     private TestHelper helper;
 
     private String user1Email;
@@ -143,6 +150,150 @@ class AdvertisementsTests {
         assertNull(advWithoutUser.getUser());
     }
 
+    @Test
+    void getAdvById_ETag() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        final var advertisement = helper.createAdvertisement(
+                new AdvertisementDto(null, "Adv title", "getAdvById_ETag", null, "123.45", true), tokens.accessToken());
+
+        // first request returns a validator
+        final var eTag = helper.getAdvertisementById(advertisement.getId(), null)
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(AdvertisementDto.class)
+                .getResponseHeaders().getETag();
+        // the views in the body change between requests, byte-for-byte equality is not promised
+        assertNotNull(eTag);
+        assertTrue(eTag.startsWith("W/"), eTag);
+
+        // unchanged adv is not sent again
+        webTestClient.get()
+                .uri("/adv/" + advertisement.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // after an update the old validator doesn't match anymore
+        advertisement.setTitle("Adv title updated");
+        helper.updateAdvertisement(advertisement, tokens.accessToken());
+
+        final var newETag = webTestClient.get()
+                .uri("/adv/" + advertisement.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Adv title updated")
+                .returnResult().getResponseHeaders().getETag();
+
+        assertNotEquals(eTag, newETag);
+
+        // listing pages are validated as a whole
+        final var listingETag = webTestClient.get()
+                .uri("/adv")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        webTestClient.get()
+                .uri("/adv")
+                .header(HttpHeaders.IF_NONE_MATCH, listingETag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void getAdvById_Views() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        final var advertisement = helper.createAdvertisement(
+                new AdvertisementDto(null, "Adv title", "getAdvById_Views", null, "123.45", true), tokens.accessToken());
+
+        for (int i = 0; i < 3; i++) {
+            helper.getAdvertisementById(advertisement.getId(), null)
+                    .expectStatus().isOk();
+        }
+
+        // views not stored yet are counted too, the view being served included
+        final var eTag = helper.getAdvertisementById(advertisement.getId(), null)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.views").isEqualTo(4)
+                .returnResult().getResponseHeaders().getETag();
+
+        // views are stored in batches, not per request
+        viewCounter.flush();
+
+        helper.getAdvertisementById(advertisement.getId(), null)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.views").isEqualTo(5);
+
+        // storing views does not change the advertisement
+        webTestClient.get()
+                .uri("/adv/" + advertisement.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void bulkCreateTest() throws JsonProcessingException {
+        final var tokens = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        final var dtoList = List.of(
+                new AdvertisementDto(null, "Bulk 1", "bulkCreateTest", "GARDEN", "10.00", true),
+                new AdvertisementDto(null, "", "bulkCreateTest", null, "10.00", true),
+                new AdvertisementDto(null, "Bulk 3", "bulkCreateTest", "UNKNOWN", "10.00", true),
+                new AdvertisementDto(null, "Bulk 4", "bulkCreateTest", null, "12.345", false),
+                new AdvertisementDto(null, "Bulk 5", "bulkCreateTest", null, "99", false));
+
+        final var results = webTestClient.post()
+                .uri("/adv/bulk")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .bodyValue(dtoList)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BulkItemResultDto.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(results);
+        assertEquals(dtoList.size(), results.size());
+
+        // valid items are created, the rest is rejected with reasons
+        for (int i : List.of(0, 4)) {
+            assertEquals(i, results.get(i).index());
+            assertNotNull(results.get(i).id());
+            assertNull(results.get(i).errors());
+        }
+        for (int i : List.of(1, 2, 3)) {
+            assertNull(results.get(i).id());
+            assertFalse(results.get(i).errors().isEmpty());
+        }
+
+        helper.getAdvertisementById(results.get(0).id(), null)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Bulk 1")
+                .jsonPath("$.category").isEqualTo("GARDEN");
+
+        // inactive one is visible to the owner only
+        helper.getAdvertisementById(results.get(4).id(), null)
+                .expectStatus().isNotFound();
+        helper.getAdvertisementById(results.get(4).id(), tokens.accessToken())
+                .expectStatus().isOk();
+
+        // empty request is rejected
+        webTestClient.post()
+                .uri("/adv/bulk")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void updateAdvertisementTest() throws JsonProcessingException {
         /// setup
@@ -260,6 +411,77 @@ class AdvertisementsTests {
                 .expectStatus().isNotFound();
     }
 
+    @Test
+    void addAdvertisementWithPicturesAsyncTest() throws JsonProcessingException, InterruptedException {
+        final var loginResponse = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        // the response comes before the upload, pictures are pending and have no url yet
+        final var advertisement = helper.createAdvertisement(new AdvertisementDto(null, "Adv title with async pics",
+                        "addAdvertisementWithPicturesAsyncTest", null, "123.45", true),
+                List.of("pics/pic1.png", "pics/pic2.jpg"), true, loginResponse.accessToken());
+
+        assertNotNull(advertisement);
+        assertEquals(2, advertisement.getPics().size());
+        advertisement.getPics().forEach(picture -> {
+            assertEquals(PictureStatus.PENDING, picture.status());
+            assertNull(picture.url());
+        });
+
+        // poll until the pipeline has uploaded both pictures
+        AdvertisementDto polled = null;
+        for (int i = 0; i < 60; i++) {
+            polled = helper.getAdvertisementById(advertisement.getId(), loginResponse.accessToken())
+                    .expectStatus().isOk()
+                    .returnResult(AdvertisementDto.class)
+                    .getResponseBody().blockFirst();
+            if (polled.getPics().stream().allMatch(picture -> picture.status() != PictureStatus.PENDING)) {
+                break;
+            }
+            Thread.sleep(500);
+        }
+
+        assertNotNull(polled);
+        polled.getPics().forEach(picture -> {
+            assertEquals(PictureStatus.READY, picture.status());
+            assertNotNull(picture.url());
+        });
+
+        helper.deleteAdvertisement(polled, loginResponse.accessToken())
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void addAdvertisementWithKnownPictureTest() throws JsonProcessingException {
+        final var loginResponse = helper.registerUserAndGetTokens(user1Email, user1Phone, password);
+
+        final var first = helper.createAdvertisement(new AdvertisementDto(null, "Adv with a picture",
+                "addAdvertisementWithKnownPictureTest", null, "10", true), List.of("pics/pic1.png"),
+                loginResponse.accessToken());
+        final var second = helper.createAdvertisement(new AdvertisementDto(null, "Adv with the same picture",
+                "addAdvertisementWithKnownPictureTest", null, "20", true), List.of("pics/pic1.png"),
+                loginResponse.accessToken());
+
+        // the same bytes are not uploaded twice, both pictures point to the same asset
+        final var url = first.getPics().get(0).url();
+        assertNotNull(url);
+        assertEquals(url, second.getPics().get(0).url());
+        assertNotEquals(first.getPics().get(0).id(), second.getPics().get(0).id());
+
+        // deleting one advertisement keeps the asset of the other
+        helper.deleteAdvertisement(first, loginResponse.accessToken())
+                .expectStatus().isOk();
+
+        final var remaining = helper.getAdvertisementById(second.getId(), loginResponse.accessToken())
+                .expectStatus().isOk()
+                .returnResult(AdvertisementDto.class)
+                .getResponseBody().blockFirst();
+        assertNotNull(remaining);
+        assertEquals(url, remaining.getPics().get(0).url());
+
+        helper.deleteAdvertisement(remaining, loginResponse.accessToken())
+                .expectStatus().isOk();
+    }
+
     @Test
     void deleteAdvertisementAddedToFavList() throws JsonProcessingException {
         // register user1 and user2
@@ -11,10 +11,17 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static io.teamchallenge.project.bazario.TestHelper.MAIL_PIT_URL;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -191,4 +198,182 @@ class AuthTests {
                 .exchange()
                 .expectStatus().isOk();
     }
+
+    @Test
+    void logoutEndsOnlyThatSession() {
+        final var helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+        final var firstDevice = helper.registerUserAndGetTokens(email, phone, password);
+        final var secondDevice = login();
+
+        webTestClient.post()
+                .uri("/auth/logout")
+                .header("Authorization", "Bearer " + firstDevice.accessToken())
+                .bodyValue(new RefreshTokenRequest(firstDevice.refreshToken()))
+                .exchange()
+                .expectStatus().isOk();
+
+        refresh(firstDevice.refreshToken())
+                .expectStatus().isBadRequest();
+        refresh(secondDevice.refreshToken())
+                .expectStatus().isOk();
+
+        // a session that already ended is not found
+        webTestClient.post()
+                .uri("/auth/logout")
+                .header("Authorization", "Bearer " + firstDevice.accessToken())
+                .bodyValue(new RefreshTokenRequest(firstDevice.refreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void logoutEverywhereRevokesAccessTokens() {
+        final var helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+        final var tokens = helper.registerUserAndGetTokens(email, phone, password);
+        final var secondDevice = login();
+
+        webTestClient.get()
+                .uri("/user")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post()
+                .uri("/auth/logout-all")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .exchange()
+                .expectStatus().isOk();
+
+        refresh(secondDevice.refreshToken())
+                .expectStatus().isBadRequest();
+        webTestClient.get()
+                .uri("/user")
+                .header("Authorization", "Bearer " + secondDevice.accessToken())
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        // the token is still signed and unexpired, but the security stamp it carries is gone
+        webTestClient.get()
+                .uri("/user")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void refreshTokensArePerDeviceAndRotated() {
+        final var helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+        final var firstDevice = helper.registerUserAndGetTokens(email, phone, password);
+
+        final var secondDevice = webTestClient.post()
+                .uri("/auth/login")
+                .bodyValue(new LoginRequest(email, password))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginResponse.class)
+                .returnResult().getResponseBody();
+        assertNotNull(secondDevice);
+
+        // logging in on the second device keeps the session of the first one
+        final var refreshed = refresh(firstDevice.refreshToken())
+                .expectStatus().isOk()
+                .expectBody(LoginResponse.class)
+                .returnResult().getResponseBody();
+        assertNotNull(refreshed);
+        assertNotEquals(firstDevice.refreshToken(), refreshed.refreshToken());
+
+        refresh(secondDevice.refreshToken())
+                .expectStatus().isOk();
+
+        // a refresh token is used up by refreshing
+        refresh(firstDevice.refreshToken())
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/user")
+                .header("Authorization", "Bearer " + refreshed.accessToken())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void legacyLogoutEndsAllSessions() {
+        final var helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+        final var tokens = helper.registerUserAndGetTokens(email, phone, password);
+        final var secondDevice = login();
+
+        webTestClient.get()
+                .uri("/auth/logout")
+                .header("Authorization", "Bearer " + secondDevice.accessToken())
+                .exchange()
+                .expectStatus().isOk();
+
+        refresh(tokens.refreshToken())
+                .expectStatus().isBadRequest();
+        refresh(secondDevice.refreshToken())
+                .expectStatus().isBadRequest();
+        webTestClient.get()
+                .uri("/user")
+                .header("Authorization", "Bearer " + tokens.accessToken())
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenSucceedOnce() throws Exception {
+        final var helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+        final var tokens = helper.registerUserAndGetTokens(email, phone, password);
+
+        final var start = new CountDownLatch(1);
+        final var executor = Executors.newFixedThreadPool(2);
+        try {
+            final var statuses = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 2; i++) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return refresh(tokens.refreshToken())
+                            .returnResult(LoginResponse.class)
+                            .getStatus().value();
+                }));
+            }
+            start.countDown();
+
+            final var results = new ArrayList<Integer>();
+            for (Future<Integer> status : statuses) {
+                results.add(status.get(30, TimeUnit.SECONDS));
+            }
+            results.sort(null);
+            assertEquals(List.of(200, 400), results);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // and once more after both finished
+        refresh(tokens.refreshToken())
+                .expectStatus().isBadRequest();
+    }
+
+    private LoginResponse login() {
+        final var response = webTestClient.post()
+                .uri("/auth/login")
+                .bodyValue(new LoginRequest(email, password))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LoginResponse.class)
+                .returnResult().getResponseBody();
+        assertNotNull(response);
+        return response;
+    }
+
+    private WebTestClient.ResponseSpec refresh(String refreshToken) {
+        return webTestClient.post()
+                .uri("/auth/refresh")
+                .bodyValue(new RefreshTokenRequest(refreshToken))
+                .exchange();
+    }
 }
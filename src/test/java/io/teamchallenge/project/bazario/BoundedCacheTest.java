@@ -0,0 +1,136 @@
+package io.teamchallenge.project.bazario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.helpers.BoundedCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        final var cache = cache(2, Duration.ofMinutes(1));
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        assertEquals("one", cache.getIfPresent(1));
+        cache.put(3, "three");
+
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals("three", cache.getIfPresent(3));
+    }
+
+    @Test
+    void entriesExpireAfterTheTimeToLive() throws InterruptedException {
+        final var cache = cache(10, Duration.ofMillis(50));
+        cache.put(1, "one");
+        assertEquals("one", cache.getIfPresent(1));
+
+        Thread.sleep(100);
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals("two", cache.get(1, key -> "two"));
+    }
+
+    @Test
+    void putWithTimeToLiveNeverOutlivesTheCacheDefault() throws InterruptedException {
+        final var cache = cache(10, Duration.ofMillis(50));
+        cache.put(1, "one", Duration.ofMinutes(1));
+        cache.put(2, "two", Duration.ZERO);
+        cache.put(3, "three", Duration.ofSeconds(-1));
+
+        assertEquals(1, cache.size());
+        assertNull(cache.getIfPresent(2));
+
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent(1));
+
+        final var longLived = cache(10, Duration.ofMinutes(1));
+        longLived.put(1, "one", Duration.ofMillis(50));
+        Thread.sleep(100);
+        assertNull(longLived.getIfPresent(1));
+    }
+
+    @Test
+    void loadsRacingWithAnInvalidationAreNotStored() {
+        final var cache = cache(10, Duration.ofMinutes(1));
+
+        assertEquals("stale", cache.get(1, key -> {
+            cache.invalidate(1);
+            return "stale";
+        }));
+        assertNull(cache.getIfPresent(1));
+
+        assertEquals("stale", cache.get(2, key -> {
+            cache.fence();
+            return "stale";
+        }));
+        assertNull(cache.getIfPresent(2));
+
+        cache.put(3, "kept");
+        cache.fence();
+        assertEquals("kept", cache.getIfPresent(3));
+
+        assertEquals("fresh", cache.get(1, key -> "fresh"));
+        assertEquals("fresh", cache.get(1, key -> fail("loaded twice")));
+    }
+
+    @Test
+    void nullValuesAreNotCached() {
+        final var cache = cache(10, Duration.ofMinutes(1));
+
+        assertNull(cache.get(1, key -> null));
+        assertEquals(0, cache.size());
+        assertEquals("one", cache.get(1, key -> "one"));
+    }
+
+    @Test
+    void invalidateIfDropsMatchingEntriesOnly() {
+        final var cache = cache(10, Duration.ofMinutes(1));
+        for (int i = 1; i <= 6; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+
+        cache.invalidateIf(key -> key % 2 == 0);
+
+        assertEquals(3, cache.size());
+        assertEquals("1", cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void zeroMaxSizeDisablesTheCache() {
+        final var cache = cache(0, Duration.ofMinutes(1));
+        cache.put(1, "one");
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals("two", cache.get(1, key -> "two"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        final var cache = cache(10, Duration.ofMinutes(1));
+        cache.get(1, key -> "one");
+        cache.get(1, key -> "one");
+        cache.getIfPresent(2);
+
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("cache.size").gauge().value());
+    }
+
+    private BoundedCache<Integer, String> cache(int maxSize, Duration ttl) {
+        return new BoundedCache<>("test", maxSize, ttl, meterRegistry);
+    }
+}
@@ -0,0 +1,75 @@
+package io.teamchallenge.project.bazario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.config.BoundedPasswordEncoder;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void hashesAndChecksOnTheWorkers() {
+        final var encoder = new BoundedPasswordEncoder(4, 2, 4, new SimpleMeterRegistry());
+
+        final var encoded = encoder.encode("111111");
+        assertTrue(encoder.matches("111111", encoded));
+        assertFalse(encoder.matches("222222", encoded));
+
+        encoder.shutdown();
+    }
+
+    @Test
+    void hashesWithALowerCostAreUpgraded() {
+        final var weak = new BoundedPasswordEncoder(4, 1, 1, new SimpleMeterRegistry());
+        final var strong = new BoundedPasswordEncoder(5, 1, 1, new SimpleMeterRegistry());
+
+        assertTrue(strong.upgradeEncoding(weak.encode("111111")));
+        assertFalse(strong.upgradeEncoding(strong.encode("111111")));
+
+        weak.shutdown();
+        strong.shutdown();
+    }
+
+    @Test
+    void saturationIsRefusedRightAway() throws InterruptedException {
+        final var meterRegistry = new SimpleMeterRegistry();
+        // one worker and one queued check, each long enough for the others to arrive meanwhile
+        final var encoder = new BoundedPasswordEncoder(12, 1, 1, meterRegistry);
+        final var callers = Executors.newFixedThreadPool(4);
+
+        final var results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 4; i++) {
+            results.add(callers.submit(() -> encoder.encode("111111")));
+        }
+
+        var refused = 0;
+        for (Future<String> result : results) {
+            try {
+                assertNotNull(result.get());
+            } catch (ExecutionException e) {
+                assertInstanceOf(ServiceBusyException.class, e.getCause());
+                refused++;
+            }
+        }
+
+        assertTrue(refused >= 2, "refused: " + refused);
+        assertEquals(refused, meterRegistry.get("auth.password.rejected").counter().count());
+
+        callers.shutdown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void calibrationNeverGoesBelowTheMinimum() {
+        assertEquals(4, BoundedPasswordEncoder.calibrateStrength(4, Duration.ofNanos(1)));
+        assertTrue(BoundedPasswordEncoder.calibrateStrength(4, Duration.ofMillis(50)) >= 4);
+    }
+}
@@ -0,0 +1,26 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.service.AdvertisementDetailsCache;
+import io.teamchallenge.project.bazario.service.ListingCache;
+import org.springframework.core.Ordered;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+/**
+ * Tests truncate the tables behind the application, so the cached listing pages and advertisements of the previous
+ * test are dropped after the clean-up scripts ran.
+ */
+public class CacheResetListener implements TestExecutionListener, Ordered {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        final var context = testContext.getApplicationContext();
+        context.getBeanProvider(ListingCache.class).ifAvailable(ListingCache::invalidateAll);
+        context.getBeanProvider(AdvertisementDetailsCache.class).ifAvailable(AdvertisementDetailsCache::invalidateAll);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,100 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.helpers.ImageProcessor;
+import io.teamchallenge.project.bazario.helpers.StagedPicture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ImageProcessor} and the bytes it saves, on the test pictures and on a synthetic
+ * 12 megapixel phone photo. The sizes before and after are printed once per picture.
+ * Runs on demand only: {@code mvn test -Dtest=ImageProcessorBenchmark -Dbenchmark=true}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ImageProcessorBenchmark {
+
+    private static final String PHOTO = "photo-4000x3000";
+
+    @Param({"pics/pic1.png", "pics/pic2.jpg", PHOTO})
+    public String picture;
+
+    private ImageProcessor processor;
+    private StagedPicture original;
+
+    @Setup
+    public void setUp() throws IOException {
+        processor = new ImageProcessor(1600, 320, 0.82f, 40_000_000, 4);
+        final var content = PHOTO.equals(picture)
+                ? photo(4000, 3000)
+                : new ClassPathResource(picture).getContentAsByteArray();
+        final var file = Files.createTempFile("image-processor-benchmark", ".tmp");
+        Files.write(file, content);
+        original = StagedPicture.inspect(file, Long.MAX_VALUE);
+
+        final var processed = processor.process(original);
+        System.out.printf("%n%s: %d bytes -> %d bytes %dx%d %s + %d bytes thumbnail, %.1f%% saved%n",
+                picture, content.length, processed.image().length, processed.width(), processed.height(),
+                processed.format(), processed.thumbnail().length,
+                100.0 * (content.length - processed.image().length) / content.length);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        processor.shutdown();
+        Files.deleteIfExists(original.file());
+    }
+
+    @Benchmark
+    public ImageProcessor.ProcessedImage process() {
+        return processor.process(original);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ImageProcessorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    /**
+     * Smooth gradients with sensor-like noise, encoded at high quality the way phone cameras do.
+     */
+    private static byte[] photo(int width, int height) throws IOException {
+        final var random = new Random(42);
+        final var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final var noise = random.nextInt(16);
+                final var r = (x * 255 / width + noise) & 0xff;
+                final var g = (y * 255 / height + noise) & 0xff;
+                final var b = ((x + y) * 127 / (width + height) + noise) & 0xff;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+
+        final var output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", output);
+        return output.toByteArray();
+    }
+}
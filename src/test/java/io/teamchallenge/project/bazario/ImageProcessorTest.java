@@ -0,0 +1,222 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.helpers.ImageProcessor;
+import io.teamchallenge.project.bazario.helpers.StagedPicture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessorTest {
+
+    private static final int MAX_EDGE = 1600;
+    private static final int THUMBNAIL_EDGE = 320;
+
+    private final ImageProcessor imageProcessor = new ImageProcessor(MAX_EDGE, THUMBNAIL_EDGE, 0.82f, 40_000_000L, 1);
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        imageProcessor.shutdown();
+    }
+
+    @Test
+    void largePicturesAreScaledToTheLongestEdge() throws IOException {
+        final var processed = imageProcessor.process(stage(encode(halves(4000, 2000, false), "jpeg")));
+
+        assertEquals("jpeg", processed.format());
+        assertEquals(MAX_EDGE, processed.width());
+        assertEquals(MAX_EDGE / 2, processed.height());
+        assertSize(MAX_EDGE, MAX_EDGE / 2, processed.image());
+        assertSize(THUMBNAIL_EDGE, THUMBNAIL_EDGE / 2, processed.thumbnail());
+    }
+
+    @Test
+    void smallPicturesKeepTheirSizeAndAreTheirOwnThumbnail() throws IOException {
+        final var processed = imageProcessor.process(stage(encode(halves(200, 100, false), "jpeg")));
+
+        assertEquals(200, processed.width());
+        assertEquals(100, processed.height());
+        assertSame(processed.image(), processed.thumbnail());
+    }
+
+    @Test
+    void transparentPicturesBecomePngs() throws IOException {
+        final var processed = imageProcessor.process(stage(encode(halves(2000, 500, true), "png")));
+
+        assertEquals("png", processed.format());
+        final var image = ImageIO.read(new ByteArrayInputStream(processed.image()));
+        assertTrue(image.getColorModel().hasAlpha());
+        assertEquals(0, image.getRGB(MAX_EDGE - 1, 0) >>> 24);
+    }
+
+    @Test
+    void opaquePngsBecomeJpegs() throws IOException {
+        final var processed = imageProcessor.process(stage(encode(halves(2000, 500, false), "png")));
+
+        assertEquals("jpeg", processed.format());
+        assertSize(MAX_EDGE, 400, processed.image());
+    }
+
+    @Test
+    void metadataIsStripped() throws IOException {
+        final var jpeg = withJpegSegment(encode(halves(200, 100, false), "jpeg"), 0xFE,
+                "secret comment".getBytes(StandardCharsets.US_ASCII));
+        final var withExif = withJpegSegment(jpeg, 0xE1, exif(1));
+        final var processedJpeg = imageProcessor.process(stage(withExif));
+        assertFalse(contains(processedJpeg.image(), "Exif"));
+        assertFalse(contains(processedJpeg.image(), "secret comment"));
+
+        final var png = withPngTextChunk(encode(halves(200, 100, true), "png"), "Author\0secret author");
+        final var processedPng = imageProcessor.process(stage(png));
+        assertEquals("png", processedPng.format());
+        assertFalse(contains(processedPng.image(), "tEXt"));
+        assertFalse(contains(processedPng.image(), "secret author"));
+    }
+
+    @Test
+    void exifOrientationIsAppliedToThePixels() throws IOException {
+        // red on the left, blue on the right, stored sideways
+        final var jpeg = encode(halves(400, 200, false), "jpeg");
+
+        final var clockwise = decode(imageProcessor.process(stage(withJpegSegment(jpeg, 0xE1, exif(6)))).image());
+        assertEquals(200, clockwise.getWidth());
+        assertEquals(400, clockwise.getHeight());
+        assertColor(Color.RED, clockwise.getRGB(100, 50));
+        assertColor(Color.BLUE, clockwise.getRGB(100, 350));
+
+        final var counterClockwise = decode(imageProcessor.process(stage(withJpegSegment(jpeg, 0xE1, exif(8)))).image());
+        assertEquals(200, counterClockwise.getWidth());
+        assertEquals(400, counterClockwise.getHeight());
+        assertColor(Color.BLUE, counterClockwise.getRGB(100, 50));
+        assertColor(Color.RED, counterClockwise.getRGB(100, 350));
+
+        final var upsideDown = decode(imageProcessor.process(stage(withJpegSegment(jpeg, 0xE1, exif(3)))).image());
+        assertEquals(400, upsideDown.getWidth());
+        assertColor(Color.BLUE, upsideDown.getRGB(50, 100));
+        assertColor(Color.RED, upsideDown.getRGB(350, 100));
+    }
+
+    @Test
+    void unreadablePicturesAreRejected() throws IOException {
+        final var jpeg = encode(halves(200, 100, false), "jpeg");
+        final var truncated = new byte[64];
+        System.arraycopy(jpeg, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalOperationException.class, () -> imageProcessor.process(stage(truncated)));
+    }
+
+    private StagedPicture stage(byte[] content) throws IOException {
+        final var file = Files.createTempFile(dir, "picture", ".tmp");
+        Files.write(file, content);
+        return StagedPicture.inspect(file, content.length);
+    }
+
+    /**
+     * Left half red, right half blue or transparent.
+     */
+    private static BufferedImage halves(int width, int height, boolean alpha) {
+        final var image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        final var graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.RED);
+            graphics.fillRect(0, 0, width / 2, height);
+            if (!alpha) {
+                graphics.setColor(Color.BLUE);
+                graphics.fillRect(width / 2, 0, width - width / 2, height);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        final var output = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, output));
+        return output.toByteArray();
+    }
+
+    private static BufferedImage decode(byte[] content) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(content));
+    }
+
+    private static void assertSize(int width, int height, byte[] content) throws IOException {
+        final var image = decode(content);
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+
+    private static void assertColor(Color expected, int rgb) {
+        final var actual = new Color(rgb);
+        final var distance = Math.abs(expected.getRed() - actual.getRed())
+                             + Math.abs(expected.getGreen() - actual.getGreen())
+                             + Math.abs(expected.getBlue() - actual.getBlue());
+        assertTrue(distance < 60, "expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * Inserts a segment right after the start of image marker.
+     */
+    private static byte[] withJpegSegment(byte[] jpeg, int marker, byte[] payload) {
+        final var result = ByteBuffer.allocate(jpeg.length + 4 + payload.length);
+        result.put(jpeg, 0, 2)
+                .put((byte) 0xFF).put((byte) marker)
+                .putShort((short) (payload.length + 2))
+                .put(payload)
+                .put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+
+    /**
+     * An EXIF APP1 payload with the orientation tag only, in Motorola byte order.
+     */
+    private static byte[] exif(int orientation) {
+        return ByteBuffer.allocate(6 + 8 + 2 + 12 + 4)
+                .put("Exif\0\0".getBytes(StandardCharsets.US_ASCII))
+                .put("MM".getBytes(StandardCharsets.US_ASCII)).putShort((short) 42).putInt(8)
+                .putShort((short) 1)
+                .putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0)
+                .putInt(0)
+                .array();
+    }
+
+    /**
+     * Inserts a tEXt chunk right after the IHDR chunk.
+     */
+    private static byte[] withPngTextChunk(byte[] png, String text) {
+        final var data = text.getBytes(StandardCharsets.ISO_8859_1);
+        final var crc = new CRC32();
+        crc.update("tEXt".getBytes(StandardCharsets.US_ASCII));
+        crc.update(data);
+
+        // signature (8) and IHDR (4 length, 4 type, 13 data, 4 crc)
+        final var ihdrEnd = 8 + 25;
+        return ByteBuffer.allocate(png.length + 12 + data.length)
+                .put(png, 0, ihdrEnd)
+                .putInt(data.length).put("tEXt".getBytes(StandardCharsets.US_ASCII)).put(data).putInt((int) crc.getValue())
+                .put(png, ihdrEnd, png.length - ihdrEnd)
+                .array();
+    }
+
+    private static boolean contains(byte[] content, String text) {
+        return new String(content, StandardCharsets.ISO_8859_1).contains(text);
+    }
+}
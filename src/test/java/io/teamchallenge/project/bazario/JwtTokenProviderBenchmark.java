@@ -0,0 +1,107 @@
+package io.teamchallenge.project.bazario;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.config.JwtTokenProvider;
+import io.teamchallenge.project.bazario.entity.Role;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.entity.UserRole;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with the access token: the former validate-then-parse sequence that derived
+ * the key and built a parser on every call, against {@link JwtTokenProvider#verify(String)} with its cache disabled
+ * and with the token already cached.
+ * Runs on demand only: {@code mvn test -Dtest=JwtTokenProviderBenchmark -Dbenchmark=true}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtTokenProviderBenchmark {
+
+    private String secret;
+    private String token;
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+
+    @Setup
+    public void setUp() {
+        final var bytes = new byte[64];
+        new SecureRandom().nextBytes(bytes);
+        secret = Encoders.BASE64.encode(bytes);
+
+        uncached = new JwtTokenProvider(secret, 3600, 0, new SimpleMeterRegistry());
+        cached = new JwtTokenProvider(secret, 3600, 10_000, new SimpleMeterRegistry());
+        final var user = new User(1L, "Henry", "Case", "user@server.com", "password", "+380000000000",
+                true, null, null);
+        user.setRoles(Set.of(new Role(null, UserRole.USER, user)));
+        user.rotateSecurityStamp();
+        token = cached.generateToken(user);
+        cached.verify(token);
+    }
+
+    @Benchmark
+    public String perCallKeyAndParser() {
+        return validateToken(token) ? getUsername(token) : null;
+    }
+
+    @Benchmark
+    public String preparedParser() {
+        return uncached.verify(token).orElseThrow().getSubject();
+    }
+
+    @Benchmark
+    public String cachedClaims() {
+        return cached.verify(token).orElseThrow().getSubject();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtTokenProviderBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    // the provider as it was before verification was prepared once and cached
+
+    private boolean validateToken(String token) {
+        Jwts.parser()
+                .verifyWith((SecretKey) key())
+                .build()
+                .parse(token);
+        return true;
+    }
+
+    private String getUsername(String token) {
+        return Jwts.parser()
+                .verifyWith((SecretKey) key())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+
+    private Key key() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+    }
+}
@@ -0,0 +1,106 @@
+package io.teamchallenge.project.bazario;
+
+import io.jsonwebtoken.io.Encoders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.config.JwtTokenProvider;
+import io.teamchallenge.project.bazario.entity.Role;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.entity.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final String secret = secret();
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider(secret, 3600, 100, meterRegistry);
+    private final User user = user();
+
+    @Test
+    void validTokenIsVerifiedOnceAndThenServedFromTheCache() {
+        final var token = tokenProvider.generateToken(user);
+
+        final var claims = tokenProvider.verify(token).orElseThrow();
+        assertEquals(user.getEmail(), claims.getSubject());
+        assertEquals(user.getId(), tokenProvider.getPrincipal(claims).orElseThrow().id());
+        assertEquals(Set.of(UserRole.USER), tokenProvider.getPrincipal(claims).orElseThrow().roles());
+
+        assertSame(claims, tokenProvider.verify(token).orElseThrow());
+        assertEquals(1, hits());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        final var token = tokenProvider.generateToken(user);
+        assertTrue(tokenProvider.verify(token).isPresent());
+
+        // the same signature over claims naming another user
+        final var parts = token.split("\\.");
+        final var payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace(user.getEmail(), "admin@server.com");
+        final var tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        assertTrue(tokenProvider.verify(tampered).isEmpty());
+
+        // a different signature
+        final var signature = parts[2].toCharArray();
+        signature[0] = signature[0] == 'A' ? 'B' : 'A';
+        assertTrue(tokenProvider.verify(parts[0] + "." + parts[1] + "." + new String(signature)).isEmpty());
+
+        // signed with another key
+        final var otherProvider = new JwtTokenProvider(secret(), 3600, 100, new SimpleMeterRegistry());
+        assertTrue(tokenProvider.verify(otherProvider.generateToken(user)).isEmpty());
+
+        // unsigned and malformed
+        assertTrue(tokenProvider.verify(parts[0] + "." + parts[1] + ".").isEmpty());
+        assertTrue(tokenProvider.verify("not a token").isEmpty());
+    }
+
+    @Test
+    void expiredTokenIsRejected() throws InterruptedException {
+        final var expired = new JwtTokenProvider(secret, 0, 100, new SimpleMeterRegistry()).generateToken(user);
+        Thread.sleep(1000);
+
+        assertTrue(tokenProvider.verify(expired).isEmpty());
+    }
+
+    @Test
+    void cachedTokenIsEvictedWhenItExpires() throws InterruptedException {
+        // expiration has a resolution of one second, a token issued for two seconds lives at least one
+        final var token = new JwtTokenProvider(secret, 2, 100, new SimpleMeterRegistry()).generateToken(user);
+
+        assertTrue(tokenProvider.verify(token).isPresent());
+        assertTrue(tokenProvider.verify(token).isPresent());
+        assertEquals(1, hits());
+
+        // long before the time-to-live of the cache
+        Thread.sleep(2100);
+
+        assertTrue(tokenProvider.verify(token).isEmpty());
+        assertEquals(1, hits());
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt").tag("result", "hit").counter().count();
+    }
+
+    private static String secret() {
+        final var bytes = new byte[64];
+        new SecureRandom().nextBytes(bytes);
+        return Encoders.BASE64.encode(bytes);
+    }
+
+    private static User user() {
+        final var user = new User(1L, "Henry", "Case", "user@server.com", "password", "+380000000000",
+                true, null, null);
+        user.setRoles(Set.of(new Role(null, UserRole.USER, user)));
+        user.rotateSecurityStamp();
+        return user;
+    }
+}
@@ -0,0 +1,78 @@
+package io.teamchallenge.project.bazario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.service.ListingCache;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import io.teamchallenge.project.bazario.web.dto.PagedAdvertisementDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ListingCacheTest {
+
+    private final ListingCache listingCache = new ListingCache(100, 60, new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void changesInvalidateOnlyPagesTheyCouldAppearOn() {
+        final var bikes = new AdvertisementFilter("  Red  BIKE ", null, true);
+        final var cars = new AdvertisementFilter("car", null, true);
+        final var garden = new AdvertisementFilter(null, Category.GARDEN, null);
+        get(bikes);
+        get(cars);
+        get(garden);
+        assertEquals(3, loads.get());
+
+        // cached under the normalized title
+        get(new AdvertisementFilter("red bike", null, true));
+        assertEquals(3, loads.get());
+
+        listingCache.onAdvertisementChanged(AdvertisementChangedEvent.created(
+                snapshot("Bikes", "a red one", Category.CHILDREN)));
+        get(bikes);
+        get(cars);
+        get(garden);
+        assertEquals(4, loads.get());
+
+        listingCache.onAdvertisementChanged(AdvertisementChangedEvent.updated(
+                snapshot("sports car", null, Category.CHILDREN), snapshot("sports car", null, Category.GARDEN)));
+        get(bikes);
+        get(cars);
+        get(garden);
+        assertEquals(6, loads.get());
+    }
+
+    @Test
+    void invalidateAllDropsEveryPageAndChangesTheETag() {
+        get(new AdvertisementFilter(null, null, true));
+        final var eTag = listingCache.getETag();
+
+        listingCache.invalidateAll();
+        get(new AdvertisementFilter(null, null, true));
+
+        assertEquals(2, loads.get());
+        assertNotEquals(eTag, listingCache.getETag());
+    }
+
+    private void get(AdvertisementFilter filter) {
+        listingCache.get(filter, PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            return new PagedAdvertisementDto(List.of(), 0, 0, 10);
+        });
+    }
+
+    private static AdvertisementSnapshot snapshot(String title, String description, Category category) {
+        return new AdvertisementSnapshot(1L, title, description, category, BigDecimal.TEN, true,
+                LocalDateTime.now(), 1L);
+    }
+}
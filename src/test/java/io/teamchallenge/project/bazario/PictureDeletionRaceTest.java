@@ -0,0 +1,218 @@
+package io.teamchallenge.project.bazario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.entity.AdvPicture;
+import io.teamchallenge.project.bazario.entity.PendingDeletion;
+import io.teamchallenge.project.bazario.entity.PictureStatus;
+import io.teamchallenge.project.bazario.helpers.ImageProcessor;
+import io.teamchallenge.project.bazario.helpers.LocalPictureStorage;
+import io.teamchallenge.project.bazario.helpers.PictureUploader;
+import io.teamchallenge.project.bazario.helpers.StagedPicture;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.repository.PendingDeletionRepository;
+import io.teamchallenge.project.bazario.service.PictureDeletionWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A picture that picks up assets scheduled for deletion, by content deduplication or by storing the same content
+ * again, commits after the uploader returned. The deletion worker must not remove the assets in between.
+ * The repositories are backed by in-memory rows, a row is "committed" when the test adds it.
+ */
+class PictureDeletionRaceTest {
+
+    private static final Duration GRACE = Duration.ofSeconds(120);
+
+    @TempDir
+    Path dir;
+
+    private final Map<Long, AdvPicture> pictures = new ConcurrentHashMap<>();
+    private final List<PendingDeletion> pending = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private LocalPictureStorage storage;
+    private ImageProcessor imageProcessor;
+    private PictureDeletionWorker worker;
+    private PictureUploader uploader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final var advPictureRepository = mock(AdvPictureRepository.class);
+        when(advPictureRepository.findFirstByContentHash(anyString())).thenAnswer(invocation -> pictures.values()
+                .stream()
+                .filter(picture -> picture.getContentHash().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(advPictureRepository.existsById(anyLong()))
+                .thenAnswer(invocation -> pictures.containsKey(invocation.<Long>getArgument(0)));
+        when(advPictureRepository.findReferencedTokens(anyCollection())).thenAnswer(invocation -> {
+            final Collection<String> tokens = invocation.getArgument(0);
+            return pictures.values().stream()
+                    .flatMap(picture -> Stream.of(picture.getExternalToken(), picture.getThumbnailToken()))
+                    .filter(tokens::contains)
+                    .collect(Collectors.toSet());
+        });
+
+        final var pendingDeletionRepository = mock(PendingDeletionRepository.class);
+        when(pendingDeletionRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            final Iterable<PendingDeletion> rows = invocation.getArgument(0);
+            rows.forEach(pending::add);
+            return rows;
+        });
+        when(pendingDeletionRepository.lockDue(any(), anyInt())).thenAnswer(invocation -> pending.stream()
+                .filter(row -> !row.isDead() && !row.getNextAttemptAt().isAfter(invocation.getArgument(0)))
+                .limit(invocation.<Integer>getArgument(1))
+                .toList());
+        when(pendingDeletionRepository.postpone(anyCollection(), any())).thenAnswer(invocation -> {
+            final Collection<String> publicIds = invocation.getArgument(0);
+            final LocalDateTime until = invocation.getArgument(1);
+            var postponed = 0;
+            for (PendingDeletion row : pending) {
+                if (publicIds.contains(row.getPublicId()) && !row.isDead() && row.getNextAttemptAt().isBefore(until)) {
+                    row.setNextAttemptAt(until);
+                    postponed++;
+                }
+            }
+            return postponed;
+        });
+        doAnswer(invocation -> {
+            final Iterable<PendingDeletion> rows = invocation.getArgument(0);
+            rows.forEach(pending::remove);
+            return null;
+        }).when(pendingDeletionRepository).deleteAllInBatch(anyIterable());
+
+        storage = new LocalPictureStorage(dir.resolve("pictures").toString(), "/pictures");
+        imageProcessor = new ImageProcessor(1600, 320, 0.82f, 40_000_000L, 1);
+        worker = new PictureDeletionWorker(pendingDeletionRepository, advPictureRepository, storage,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 100, 8, 30, GRACE.toSeconds());
+        uploader = new PictureUploader(storage, imageProcessor, advPictureRepository, worker,
+                dir.resolve("staging").toString(), DataSize.ofMegabytes(10), 2, 2, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+        worker.shutdown();
+        imageProcessor.shutdown();
+    }
+
+    @Test
+    void unreferencedAssetsAreDeletedAfterTheGracePeriod() throws IOException {
+        final var first = commit(uploader.upload(picture()));
+        delete(first);
+
+        worker.drain();
+        assertStored(first);
+
+        elapse(GRACE.plusSeconds(1));
+        worker.drain();
+        assertTrue(storage.find(first.getExternalToken()).isEmpty());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void reusedAssetsSurviveTheDeletionOfThePictureTheyWereFoundBy() throws IOException {
+        final var first = commit(uploader.upload(picture()));
+
+        // the upload found the first picture, which is deleted before the new picture commits
+        final var uploaded = uploader.upload(picture());
+        assertTrue(uploaded.reused());
+        delete(first);
+
+        worker.drain();
+        final var second = commit(uploaded);
+
+        elapse(GRACE.plusSeconds(1));
+        worker.drain();
+        assertStored(second);
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void assetsStoredAgainAreRetainedUntilThePictureCommits() throws IOException {
+        final var first = commit(uploader.upload(picture()));
+        delete(first);
+
+        // the deletion is due, the same content is uploaded again and stored under the same name
+        elapse(GRACE.plusSeconds(1));
+        final var uploaded = uploader.upload(picture());
+        assertFalse(uploaded.reused());
+        assertEquals(first.getExternalToken(), uploaded.publicId());
+
+        worker.drain();
+        final var second = commit(uploaded);
+
+        elapse(GRACE.plusSeconds(1));
+        worker.drain();
+        assertStored(second);
+        assertTrue(pending.isEmpty());
+    }
+
+    private StagedPicture picture() throws IOException {
+        final var image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, x * 4 << 16 | y * 5 << 8);
+            }
+        }
+
+        final var file = dir.resolve("original-" + ids.incrementAndGet() + ".png");
+        ImageIO.write(image, "png", file.toFile());
+        return StagedPicture.inspect(file, DataSize.ofMegabytes(10).toBytes());
+    }
+
+    private AdvPicture commit(PictureUploader.UploadedPicture uploaded) {
+        final var picture = new AdvPicture(ids.incrementAndGet(), uploaded.url(), uploaded.publicId(),
+                uploaded.thumbnailUrl(), uploaded.thumbnailPublicId(), uploaded.contentHash(), PictureStatus.READY,
+                null);
+        pictures.put(picture.getId(), picture);
+        return picture;
+    }
+
+    private void delete(AdvPicture picture) {
+        pictures.remove(picture.getId());
+
+        // recorded as if in a transaction that never commits, so only the test runs the worker
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            worker.deleteAssets(List.of(picture));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void elapse(Duration duration) {
+        pending.forEach(row -> row.setNextAttemptAt(row.getNextAttemptAt().minus(duration)));
+    }
+
+    private void assertStored(AdvPicture picture) {
+        // a small picture is its own thumbnail
+        Stream.of(picture.getExternalToken(), picture.getThumbnailToken()).distinct().forEach(publicId ->
+                assertTrue(storage.find(publicId).isPresent(), publicId + " was deleted"));
+    }
+}
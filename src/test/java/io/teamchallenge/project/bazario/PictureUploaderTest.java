@@ -0,0 +1,196 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.exceptions.AppException;
+import io.teamchallenge.project.bazario.exceptions.ServiceBusyException;
+import io.teamchallenge.project.bazario.helpers.ImageProcessor;
+import io.teamchallenge.project.bazario.helpers.PictureStorage;
+import io.teamchallenge.project.bazario.helpers.PictureUploader;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.service.PictureDeletionWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PictureUploaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final StubStorage storage = new StubStorage();
+    private final ImageProcessor imageProcessor = new ImageProcessor(1600, 320, 0.82f, 40_000_000L, 1);
+    private PictureUploader uploader;
+
+    @AfterEach
+    void tearDown() {
+        storage.release();
+        if (uploader != null) {
+            uploader.shutdown();
+        }
+        imageProcessor.shutdown();
+    }
+
+    @Test
+    void resultsKeepTheOrderOfTheFiles() throws IOException {
+        uploader = uploader(4, 4, 30);
+        final var files = pictures(8);
+
+        // the first files take the longest to store
+        final var calls = new AtomicInteger();
+        storage.onStore = () -> sleep(Math.max(0, 80 - 10 * calls.getAndIncrement()));
+
+        final var uploaded = uploader.uploadAll(files);
+
+        assertEquals(files.stream().map(PictureUploaderTest::sha256).toList(),
+                uploaded.stream().map(PictureUploader.UploadedPicture::contentHash).toList());
+        assertEquals(files.size() * 2, storage.stored.size());
+    }
+
+    @Test
+    void failedUploadDeletesEveryUploadedPicture() throws IOException {
+        uploader = uploader(2, 2, 30);
+        final var files = pictures(6);
+
+        final var calls = new AtomicInteger();
+        storage.onStore = () -> {
+            if (calls.incrementAndGet() == 5) {
+                throw new IllegalStateException("image host is down");
+            }
+        };
+
+        assertThrows(AppException.class, () -> uploader.uploadAll(files));
+        awaitNothingStored();
+    }
+
+    @Test
+    void passedDeadlineFailsTheRequestAndDeletesLateUploads() throws IOException {
+        uploader = uploader(2, 2, 1);
+        final var files = pictures(3);
+        storage.block();
+
+        final var startedAt = System.nanoTime();
+        assertThrows(AppException.class, () -> uploader.uploadAll(files));
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(3), "the deadline was not kept");
+
+        storage.release();
+        awaitNothingStored();
+    }
+
+    @Test
+    void saturatedPoolRefusesTheRequest() throws IOException {
+        // one worker and a queue of four, the sixth upload finds no room
+        uploader = uploader(1, 10, 30);
+        final var files = pictures(6);
+        storage.block();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(ServiceBusyException.class, () -> uploader.uploadAll(files));
+        });
+
+        storage.release();
+        awaitNothingStored();
+    }
+
+    private PictureUploader uploader(int threads, int maxPerRequest, long timeoutSeconds) throws IOException {
+        return new PictureUploader(storage, imageProcessor, mock(AdvPictureRepository.class),
+                mock(PictureDeletionWorker.class), dir.toString(), DataSize.ofMegabytes(1), threads, maxPerRequest,
+                timeoutSeconds);
+    }
+
+    private void awaitNothingStored() {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!storage.stored.isEmpty() && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+        assertEquals(Map.of(), storage.stored, "uploaded pictures were not deleted");
+    }
+
+    /**
+     * Distinct pictures, so none reuses the assets of another.
+     */
+    private static List<MultipartFile> pictures(int count) throws IOException {
+        final var files = new ArrayList<MultipartFile>();
+        for (int i = 0; i < count; i++) {
+            final var image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(i, 0, 0xFFFFFF);
+
+            final var output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            files.add(new MockMultipartFile("pics", "picture-" + i + ".png", "image/png", output.toByteArray()));
+        }
+        return files;
+    }
+
+    private static String sha256(MultipartFile file) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file.getBytes()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class StubStorage implements PictureStorage {
+        private final Map<String, byte[]> stored = new ConcurrentHashMap<>();
+        private final AtomicInteger ids = new AtomicInteger();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile Runnable onStore = () -> {
+        };
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public StoredPicture store(byte[] content, String format) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            onStore.run();
+
+            final var publicId = "picture-" + ids.incrementAndGet();
+            stored.put(publicId, content);
+            return new StoredPicture("http://localhost/" + publicId, publicId);
+        }
+
+        @Override
+        public void delete(String publicId) {
+            stored.remove(publicId);
+        }
+    }
+}
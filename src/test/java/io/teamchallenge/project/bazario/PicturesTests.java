@@ -0,0 +1,146 @@
+package io.teamchallenge.project.bazario;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = {"file:.env_test_local"}, properties = {
+        "app.pictures.storage=local",
+        "app.pictures.local.dir=${java.io.tmpdir}/bazario-test-pictures"})
+@ActiveProfiles("test")
+@Sql("classpath:clean-db.sql")
+class PicturesTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private TestHelper helper;
+
+    private String userEmail;
+    private String userPhone;
+
+    private String password;
+
+    @BeforeEach()
+    void setup() {
+        final var currentTime = System.currentTimeMillis();
+        userEmail = String.format("user1_%d@server.com", currentTime);
+        userPhone = String.format("+38%010d", currentTime % 10000000000L);
+        password = "111111";
+
+        helper = new TestHelper();
+        helper.setWebTestClient(webTestClient);
+    }
+
+    @Test
+    void getLocalPictureTest() throws JsonProcessingException, InterruptedException {
+        final var loginResponse = helper.registerUserAndGetTokens(userEmail, userPhone, password);
+
+        final var advertisement = helper.createAdvertisement(new AdvertisementDto(null, "Adv with a local picture",
+                "getLocalPictureTest", null, "10", true), List.of("pics/pic2.jpg"), loginResponse.accessToken());
+
+        final var url = advertisement.getPics().get(0).url();
+        assertTrue(url.startsWith("/pictures/"));
+        assertTrue(advertisement.getPics().get(0).thumbnailUrl().startsWith("/pictures/"));
+
+        // the whole file, cacheable for good
+        final var result = webTestClient.get()
+                .uri(url)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.IMAGE_JPEG)
+                .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, ".*immutable.*")
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(byte[].class)
+                .returnResult();
+        final var body = result.getResponseBody();
+        final var eTag = result.getResponseHeaders().getETag();
+        assertNotNull(body);
+        assertEquals(result.getResponseHeaders().getContentLength(), body.length);
+
+        // revalidation
+        webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        // a byte range
+        final var range = webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.RANGE, "bytes=10-19")
+                .exchange()
+                .expectStatus().isEqualTo(206)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + body.length)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertArrayEquals(Arrays.copyOfRange(body, 10, 20), range);
+
+        // a range after the end of the file
+        webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.RANGE, "bytes=" + body.length + "-")
+                .exchange()
+                .expectStatus().isEqualTo(416);
+
+        // positions too large for a long: a last position or a suffix length is cut to the file
+        final var cut = webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.RANGE, "bytes=0-99999999999999999999")
+                .exchange()
+                .expectStatus().isEqualTo(206)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE,
+                        "bytes 0-" + (body.length - 1) + "/" + body.length)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertArrayEquals(body, cut);
+
+        webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.RANGE, "bytes=-99999999999999999999")
+                .exchange()
+                .expectStatus().isEqualTo(206)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE,
+                        "bytes 0-" + (body.length - 1) + "/" + body.length);
+
+        // while a first position too large for a long is past the end
+        webTestClient.get()
+                .uri(url)
+                .header(HttpHeaders.RANGE, "bytes=99999999999999999999-")
+                .exchange()
+                .expectStatus().isEqualTo(416)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes */" + body.length);
+
+        // deleting the advertisement removes its files shortly after the commit
+        helper.deleteAdvertisement(advertisement, loginResponse.accessToken())
+                .expectStatus().isOk();
+
+        var status = 200;
+        for (int i = 0; i < 50 && status != 404; i++) {
+            Thread.sleep(100);
+            status = webTestClient.get()
+                    .uri(url)
+                    .exchange()
+                    .returnResult(byte[].class)
+                    .getStatus().value();
+        }
+        assertEquals(404, status);
+    }
+}
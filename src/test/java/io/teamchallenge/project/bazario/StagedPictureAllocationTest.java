@@ -0,0 +1,232 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.exceptions.IllegalOperationException;
+import io.teamchallenge.project.bazario.helpers.ImageProcessor;
+import io.teamchallenge.project.bazario.helpers.PictureStorage;
+import io.teamchallenge.project.bazario.helpers.PictureUploader;
+import io.teamchallenge.project.bazario.helpers.StagedPicture;
+import io.teamchallenge.project.bazario.repository.AdvPictureRepository;
+import io.teamchallenge.project.bazario.service.PictureDeletionWorker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Staging a picture must allocate the same small amount of heap whatever the size of the picture, and so must
+ * uploading it apart from the pixels, which depend on its dimensions only.
+ */
+class StagedPictureAllocationTest {
+
+    private static final long SMALL = 1L << 20;
+    private static final long LARGE = 64L << 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void heapPerUploadDoesNotDependOnPictureSize() throws IOException {
+        final var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "thread allocation measurement is not supported");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        // warm-up: class loading, digest providers and the JIT allocate on first use
+        for (int i = 0; i < 5; i++) {
+            stage(SMALL);
+        }
+
+        final var small = allocatedBy(threadMXBean, () -> stage(SMALL));
+        final var large = allocatedBy(threadMXBean, () -> stage(LARGE));
+
+        // a 64x larger picture may not cost noticeably more, and neither comes close to its size
+        assertTrue(large < 256 * 1024, "staging 64 MB allocated " + large + " bytes");
+        assertTrue(large - small < 64 * 1024, "small: " + small + " bytes, large: " + large + " bytes");
+    }
+
+    @Test
+    void uploadHeapDoesNotDependOnMetadataSize() throws IOException {
+        final var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "thread allocation measurement is not supported");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        final var imageProcessor = new ImageProcessor(1600, 320, 0.82f, 40_000_000L, 1);
+        final var uploader = new PictureUploader(new DiscardingStorage(), imageProcessor,
+                mock(AdvPictureRepository.class), mock(PictureDeletionWorker.class), dir.toString(),
+                DataSize.ofMegabytes(64), 1, 1, 30);
+        try {
+            // the same pixels, once with 512 KB of comments the upload cuts out of the original encoding
+            final var pixels = noise(1000, 750);
+            final var small = withComments(pixels, 0, dir.resolve("small.jpeg"));
+            final var large = withComments(pixels, 512 * 1024, dir.resolve("large.jpeg"));
+
+            for (int i = 0; i < 3; i++) {
+                uploader.upload(small);
+                uploader.upload(large);
+            }
+
+            // other threads of the JVM allocate now and then, the least of a few runs is the upload alone
+            var smallBytes = Long.MAX_VALUE;
+            var largeBytes = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                smallBytes = Math.min(smallBytes, allocatedByAllThreads(threadMXBean, () -> uploader.upload(small)));
+                largeBytes = Math.min(largeBytes, allocatedByAllThreads(threadMXBean, () -> uploader.upload(large)));
+            }
+
+            assertTrue(Math.abs(largeBytes - smallBytes) < 128 * 1024,
+                    "small: " + smallBytes + " bytes, large: " + largeBytes + " bytes");
+        } finally {
+            uploader.shutdown();
+            imageProcessor.shutdown();
+        }
+    }
+
+    @Test
+    void contentIsHashedAndSniffed() throws IOException {
+        final var staged = StagedPicture.copy(new JpegStream(SMALL), dir.resolve("picture"), SMALL);
+
+        assertEquals("jpeg", staged.format());
+        assertEquals(SMALL, staged.size());
+        assertEquals(SMALL, Files.size(staged.file()));
+        assertEquals(staged, StagedPicture.inspect(staged.file(), SMALL));
+    }
+
+    @Test
+    void oversizedAndUnknownContentIsRejected() {
+        final var target = dir.resolve("picture");
+
+        assertThrows(IllegalOperationException.class,
+                () -> StagedPicture.copy(new JpegStream(SMALL + 1), target, SMALL));
+        assertFalse(Files.exists(target));
+
+        assertThrows(IllegalOperationException.class,
+                () -> StagedPicture.copy(new ByteArrayInputStream("<html></html>".getBytes()), target, SMALL));
+        assertFalse(Files.exists(target));
+    }
+
+    private void stage(long size) throws IOException {
+        final var staged = StagedPicture.copy(new JpegStream(size), dir.resolve("picture"), size);
+        Files.delete(staged.file());
+    }
+
+    private static long allocatedBy(com.sun.management.ThreadMXBean threadMXBean, IORunnable action)
+            throws IOException {
+        final var threadId = Thread.currentThread().getId();
+        final var before = threadMXBean.getThreadAllocatedBytes(threadId);
+        action.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /**
+     * Counts the processing threads too, the upload runs on the image processor.
+     */
+    private static long allocatedByAllThreads(com.sun.management.ThreadMXBean threadMXBean, IORunnable action)
+            throws IOException {
+        final var threadIds = threadMXBean.getAllThreadIds();
+        final var before = Arrays.stream(threadMXBean.getThreadAllocatedBytes(threadIds)).filter(b -> b > 0).sum();
+        action.run();
+        return Arrays.stream(threadMXBean.getThreadAllocatedBytes(threadIds)).filter(b -> b > 0).sum() - before;
+    }
+
+    private static byte[] noise(int width, int height) throws IOException {
+        final var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final var random = new Random(42);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        final var output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes the JPEG with comment segments of {@code size} bytes in total after its start of image marker.
+     */
+    private static StagedPicture withComments(byte[] jpeg, int size, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(jpeg, 0, 2);
+            final var payload = new byte[60_000];
+            Arrays.fill(payload, (byte) 'x');
+            for (int left = size; left > 0; left -= payload.length) {
+                final var length = Math.min(left, payload.length);
+                out.write(new byte[]{(byte) 0xFF, (byte) 0xFE, (byte) (length + 2 >> 8), (byte) (length + 2)});
+                out.write(payload, 0, length);
+            }
+            out.write(jpeg, 2, jpeg.length - 2);
+        }
+        return StagedPicture.inspect(file, Files.size(file));
+    }
+
+    @FunctionalInterface
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+
+    private static final class DiscardingStorage implements PictureStorage {
+        @Override
+        public StoredPicture store(byte[] content, String format) {
+            return new StoredPicture("/pictures/picture", "picture");
+        }
+
+        @Override
+        public void delete(String publicId) {
+        }
+    }
+
+    /**
+     * JPEG magic followed by generated bytes, produced on the fly without allocating.
+     */
+    private static final class JpegStream extends InputStream {
+        private final long size;
+        private long position;
+
+        JpegStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            return position < size ? next() : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            final var count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) next();
+            }
+            return count;
+        }
+
+        private int next() {
+            final var value = switch ((int) Math.min(position, 3)) {
+                case 0, 2 -> 0xFF;
+                case 1 -> 0xD8;
+                default -> (int) (position * 31 & 0xFF);
+            };
+            position++;
+            return value;
+        }
+    }
+}
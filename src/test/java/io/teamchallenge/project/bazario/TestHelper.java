@@ -63,6 +63,10 @@ public class TestHelper {
     }
 
     public AdvertisementDto createAdvertisement(AdvertisementDto dto, List<String> files, String token) throws JsonProcessingException {
+        return createAdvertisement(dto, files, false, token);
+    }
+
+    public AdvertisementDto createAdvertisement(AdvertisementDto dto, List<String> files, boolean async, String token) throws JsonProcessingException {
         final var objectMapper = new ObjectMapper();
         final var jsonString = objectMapper.writeValueAsString(dto);
 
@@ -77,7 +81,7 @@ public class TestHelper {
         }
 
         return webTestClient.post()
-                .uri("/adv")
+                .uri(uriBuilder -> uriBuilder.path("/adv").queryParam("async", async).build())
                 .header("Authorization", "Bearer " + token)
                 .bodyValue(multipartBodyBuilder.build())
                 .exchange()
@@ -199,6 +203,12 @@ public class TestHelper {
                         if (filter.category() != null) {
                             builder.queryParam("category", filter.category());
                         }
+                        if (filter.minPrice() != null) {
+                            builder.queryParam("minPrice", filter.minPrice());
+                        }
+                        if (filter.maxPrice() != null) {
+                            builder.queryParam("maxPrice", filter.maxPrice());
+                        }
                     }
 
                     if (sorting != null && !sorting.isEmpty()) {
@@ -0,0 +1,98 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.search.TitleSuggester;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.SuggestionDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TitleSuggesterTest {
+
+    private final TitleSuggester suggester = new TitleSuggester(null, 10);
+
+    @Test
+    void titleThatIsAPrefixOfAnotherKeepsItsName() {
+        create(1, "Bike");
+        create(2, "bike");
+        create(3, "Bike red");
+
+        assertEquals(List.of(new SuggestionDto("bike", 2), new SuggestionDto("bike red", 1)),
+                suggester.suggest("bi", 10));
+        assertEquals(List.of(new SuggestionDto("bike", 2), new SuggestionDto("bike red", 1)),
+                suggester.suggest("bike", 10));
+    }
+
+    @Test
+    void removingTheLongerTitleKeepsTheShorterOne() {
+        create(1, "bike");
+        create(2, "bike red");
+        create(3, "bike red");
+
+        suggester.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(2, "bike red", true)));
+        assertEquals(List.of(new SuggestionDto("bike", 1), new SuggestionDto("bike red", 1)),
+                suggester.suggest("b", 10));
+
+        suggester.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(3, "bike red", true)));
+        assertEquals(List.of(new SuggestionDto("bike", 1)), suggester.suggest("bike", 10));
+        assertEquals(List.of(), suggester.suggest("bike r", 10));
+    }
+
+    @Test
+    void removingTheShorterTitleKeepsTheLongerOne() {
+        create(1, "bike");
+        create(2, "bike red");
+
+        suggester.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(1, "bike", true)));
+        assertEquals(List.of(new SuggestionDto("bike red", 1)), suggester.suggest("bi", 10));
+    }
+
+    @Test
+    void inactiveAdvertisementsAreNotSuggested() {
+        create(1, "bike");
+        suggester.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(1, "bike", true),
+                snapshot(1, "bike", false)));
+
+        assertEquals(List.of(), suggester.suggest("bike", 10));
+    }
+
+    @Test
+    void changesAnnouncedDuringTheBuildAreKept() {
+        final var advertisementRepository = mock(AdvertisementRepository.class);
+        final var suggester = new TitleSuggester(advertisementRepository, 10);
+
+        // the build read the old rows, the changes committed before it added them
+        when(advertisementRepository.findSnapshots(anyLong(), any())).thenAnswer(invocation -> {
+            suggester.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(1, "bike", true)));
+            suggester.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(2, "bike red", true),
+                    snapshot(2, "bike red", false)));
+            suggester.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(3, "bike blue", true),
+                    snapshot(3, "scooter", true)));
+            return List.of(snapshot(1, "bike", true), snapshot(2, "bike red", true), snapshot(3, "bike blue", true));
+        }).thenReturn(List.of());
+        suggester.build();
+
+        assertEquals(List.of(), suggester.suggest("bike", 10));
+        assertEquals(List.of(new SuggestionDto("scooter", 1)), suggester.suggest("s", 10));
+    }
+
+    private void create(long id, String title) {
+        suggester.onAdvertisementChanged(AdvertisementChangedEvent.created(snapshot(id, title, true)));
+    }
+
+    static AdvertisementSnapshot snapshot(long id, String title, boolean status) {
+        return new AdvertisementSnapshot(id, title, null, Category.values()[0], BigDecimal.TEN, status,
+                LocalDateTime.now(), 1L);
+    }
+}
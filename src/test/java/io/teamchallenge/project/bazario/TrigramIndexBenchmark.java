@@ -0,0 +1,96 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.search.SearchResult;
+import io.teamchallenge.project.bazario.search.TrigramIndex;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the fuzzy title search against the size of the {@link TrigramIndex}.
+ * Runs on demand only: {@code mvn test -Dtest=TrigramIndexBenchmark -Dbenchmark=true}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrigramIndexBenchmark {
+
+    private static final PageRequest PAGE_REQUEST = PageRequest.of(0, 20);
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"iphnoe", "bicycel sport", "sofa"})
+    public String query;
+
+    private TrigramIndex index;
+    private AdvertisementFilter filter;
+
+    @Setup
+    public void setUp() {
+        final var random = new Random(42);
+        final var words = vocabulary(random);
+        final var categories = Category.values();
+
+        // no time budget, the benchmark measures the complete scan
+        index = new TrigramIndex(null, 0.3, Long.MAX_VALUE / 1_000_000);
+        for (long id = 1; id <= size; id++) {
+            index.index(id, new AdvertisementSnapshot(id, sentence(words, random, 4), null,
+                    categories[random.nextInt(categories.length)], BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    random.nextInt(10) != 0, LocalDateTime.now(), 1L));
+        }
+
+        filter = new AdvertisementFilter(query, null, true);
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return index.search(filter, PAGE_REQUEST);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TrigramIndexBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static List<String> vocabulary(Random random) {
+        final var words = new ArrayList<>(List.of("iphone", "bicycle", "sport", "sofa", "chair", "table", "dress"));
+        for (int i = 0; i < 5_000; i++) {
+            final var word = new StringBuilder();
+            for (int j = 0; j < 4 + random.nextInt(6); j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static String sentence(List<String> words, Random random, int length) {
+        final var sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sentence.append(i == 0 ? "" : " ").append(words.get(random.nextInt(words.size())));
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package io.teamchallenge.project.bazario;
+
+import io.teamchallenge.project.bazario.entity.AdvertisementSnapshot;
+import io.teamchallenge.project.bazario.entity.Category;
+import io.teamchallenge.project.bazario.repository.AdvertisementRepository;
+import io.teamchallenge.project.bazario.search.TrigramIndex;
+import io.teamchallenge.project.bazario.service.AdvertisementChangedEvent;
+import io.teamchallenge.project.bazario.web.dto.AdvertisementFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrigramIndexTest {
+
+    private final List<AdvertisementSnapshot> rows = new ArrayList<>();
+    private Runnable afterRead = () -> {
+    };
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        final var advertisementRepository = mock(AdvertisementRepository.class);
+        when(advertisementRepository.findSnapshots(anyLong(), any())).thenAnswer(invocation -> {
+            final long lastId = invocation.getArgument(0);
+            final Pageable pageable = invocation.getArgument(1);
+            final var batch = rows.stream()
+                    .filter(row -> row.id() > lastId)
+                    .limit(pageable.getPageSize())
+                    .toList();
+
+            afterRead.run();
+            afterRead = () -> {
+            };
+            return batch;
+        });
+
+        index = new TrigramIndex(advertisementRepository, 0.3, 1000);
+    }
+
+    @Test
+    void similarTitlesAreFound() {
+        rows.add(snapshot(1, "mountain bike"));
+        rows.add(snapshot(2, "kitchen table"));
+        index.build();
+
+        assertEquals(List.of(1L), ids("mountian bike"));
+        assertEquals(List.of(2L), ids("kitchn table"));
+    }
+
+    @Test
+    void changesCommittedDuringTheBuildAreKept() {
+        rows.add(snapshot(1, "mountain bike"));
+        rows.add(snapshot(2, "kitchen table"));
+
+        // the build read the old rows, the changes committed before it indexed them
+        afterRead = () -> {
+            rows.clear();
+            index.onAdvertisementChanged(AdvertisementChangedEvent.deleted(snapshot(1, "mountain bike")));
+            index.onAdvertisementChanged(AdvertisementChangedEvent.updated(snapshot(2, "kitchen table"),
+                    snapshot(2, "garden chair")));
+        };
+        index.build();
+
+        assertEquals(List.of(), ids("mountain bike"));
+        assertEquals(List.of(), ids("kitchen table"));
+        assertEquals(List.of(2L), ids("garden chair"));
+        assertEquals(1, index.size());
+    }
+
+    private List<Long> ids(String title) {
+        return index.search(new AdvertisementFilter(title, null, null), PageRequest.of(0, 100)).ids();
+    }
+
+    private static AdvertisementSnapshot snapshot(long id, String title) {
+        return new AdvertisementSnapshot(id, title, null, Category.values()[0], BigDecimal.TEN, true,
+                LocalDateTime.now(), 1L);
+    }
+}
@@ -0,0 +1,151 @@
+package io.teamchallenge.project.bazario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.teamchallenge.project.bazario.config.JwtTokenProvider;
+import io.teamchallenge.project.bazario.entity.Role;
+import io.teamchallenge.project.bazario.entity.User;
+import io.teamchallenge.project.bazario.entity.UserRole;
+import io.teamchallenge.project.bazario.entity.Verification;
+import io.teamchallenge.project.bazario.helpers.EMailHelper;
+import io.teamchallenge.project.bazario.repository.RefreshTokenRepository;
+import io.teamchallenge.project.bazario.repository.UserRepository;
+import io.teamchallenge.project.bazario.service.AuthServiceImpl;
+import io.teamchallenge.project.bazario.service.UserPrincipalCache;
+import io.teamchallenge.project.bazario.service.UserServiceImpl;
+import io.teamchallenge.project.bazario.web.dto.UpdateUserRequest;
+import io.teamchallenge.project.bazario.web.dto.VerifyPasswordRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Changes made through the services are seen by the next request, not after the time-to-live.
+ */
+class UserPrincipalCacheTest {
+
+    private static final String EMAIL = "user@server.com";
+    private static final String PHONE = "+380000000000";
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+
+    private UserPrincipalCache cache;
+    private UserServiceImpl userService;
+    private AuthServiceImpl authService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        final var userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> find(row ->
+                row.getEmail().equals(invocation.getArgument(0))));
+        when(userRepository.findByPhone(anyString())).thenAnswer(invocation -> find(row ->
+                row.getPhone().equals(invocation.getArgument(0))));
+        when(userRepository.findByPasswordVerificationToken(anyString())).thenAnswer(invocation -> find(row ->
+                row.getPasswordVerification() != null
+                && row.getPasswordVerification().getToken().equals(invocation.getArgument(0))));
+        when(userRepository.findSecurityStampById(anyLong())).thenAnswer(invocation ->
+                Optional.ofNullable(users.get(invocation.<Long>getArgument(0))).map(User::getSecurityStamp));
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        doAnswer(invocation -> users.remove(invocation.<User>getArgument(0).getId()))
+                .when(userRepository).delete(any());
+
+        final var passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(any())).thenReturn("encoded");
+
+        cache = new UserPrincipalCache(userRepository, 100, 3600, new SimpleMeterRegistry());
+        userService = new UserServiceImpl(userRepository, cache);
+        authService = new AuthServiceImpl(mock(AuthenticationManager.class), mock(JwtTokenProvider.class),
+                userRepository, mock(RefreshTokenRepository.class), passwordEncoder, mock(EMailHelper.class), cache,
+                3600L, 3600L);
+
+        user = new User(1L, "Henry", "Case", EMAIL, "password", PHONE, true, null, null);
+        user.setRoles(Set.of(new Role(null, UserRole.USER, user)));
+        user.rotateSecurityStamp();
+        users.put(user.getId(), user);
+    }
+
+    @Test
+    void principalIsASnapshotOfTheUser() {
+        final var principal = cache.get(PHONE).orElseThrow();
+        assertEquals(user.getId(), principal.id());
+        assertEquals(EMAIL, principal.username());
+        assertEquals(Set.of(UserRole.USER), principal.roles());
+
+        // changing the entity of one request does not change the principal of another
+        user.setEmail("changed@server.com");
+        user.setRoles(Set.of());
+        assertEquals(EMAIL, cache.get(PHONE).orElseThrow().username());
+        assertEquals(Set.of(UserRole.USER), cache.get(PHONE).orElseThrow().roles());
+    }
+
+    @Test
+    void changedEmailIsSeenImmediately() {
+        final var stamp = user.getSecurityStamp();
+        assertTrue(cache.get(EMAIL).isPresent());
+        assertTrue(cache.isCurrent(user.getId(), stamp));
+
+        userService.updateUser(user, new UpdateUserRequest(null, null, null, "new@server.com"));
+
+        assertTrue(cache.get(EMAIL).isEmpty());
+        assertEquals("new@server.com", cache.get("new@server.com").orElseThrow().username());
+        assertEquals("new@server.com", cache.get(PHONE).orElseThrow().username());
+        assertFalse(cache.isCurrent(user.getId(), stamp));
+    }
+
+    @Test
+    void deletedUserIsSeenImmediately() {
+        final var stamp = user.getSecurityStamp();
+        assertTrue(cache.get(EMAIL).isPresent());
+        assertTrue(cache.get(PHONE).isPresent());
+        assertTrue(cache.isCurrent(user.getId(), stamp));
+
+        userService.delete(user);
+
+        assertTrue(cache.get(EMAIL).isEmpty());
+        assertTrue(cache.get(PHONE).isEmpty());
+        assertFalse(cache.isCurrent(user.getId(), stamp));
+    }
+
+    @Test
+    void logoutEverywhereIsSeenImmediately() {
+        final var stamp = user.getSecurityStamp();
+        assertTrue(cache.isCurrent(user.getId(), stamp));
+
+        authService.logoutEverywhere(user);
+
+        assertFalse(cache.isCurrent(user.getId(), stamp));
+        assertTrue(cache.isCurrent(user.getId(), user.getSecurityStamp()));
+    }
+
+    @Test
+    void restoredPasswordIsSeenImmediately() {
+        final var stamp = user.getSecurityStamp();
+        assertTrue(cache.isCurrent(user.getId(), stamp));
+
+        user.setPasswordVerification(new Verification("token", LocalDateTime.now().plusHours(1)));
+        authService.restorePassword(new VerifyPasswordRequest("token", "new password"));
+
+        assertFalse(cache.isCurrent(user.getId(), stamp));
+        assertTrue(cache.isCurrent(user.getId(), user.getSecurityStamp()));
+    }
+
+    private Optional<User> find(Predicate<User> predicate) {
+        return users.values().stream().filter(predicate).findFirst();
+    }
+}
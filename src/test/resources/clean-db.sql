@@ -1,5 +1,6 @@
 begin transaction;
 
 truncate public.users cascade;
+truncate public.pending_deletions;
 
 commit;
\ No newline at end of file